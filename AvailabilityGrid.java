@@ -0,0 +1,271 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is the availability grid shown in the AvailabilityPanel: one
+ *    column per weekday, one row per slot. It is a single component that
+ *    paints the cells straight from the availability masks instead of being
+ *    made of one button per slot.
+ *
+ *    Pressing on a cell and dragging across others paints them with the
+ *    selected availability type, including the cells a fast drag passes over
+ *    between two mouse events. Only the cells that change are repainted, and
+ *    switching to another employee just swaps the masks.
+ */
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.JComponent;
+
+public class AvailabilityGrid extends JComponent {
+  // Default serial version
+  private static final long serialVersionUID = 1L;
+
+  private static final int CELL_W = 78,
+                           CELL_H = 20,
+                           LABEL_W = 70,
+                           GAP = 1;
+
+  private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday",
+                                        "Thursday", "Friday", "Saturday",
+                                        "Sunday"};
+
+  private Color[]  colors;
+  private String[] timeLabels;
+
+  // The availability being edited and the slots the business is open, as
+  // weekly masks
+  private long[] prfMask,
+                 altMask,
+                 openMask;
+
+  private int availType;
+
+  // The cell painted by the last press or drag event; dragDay is -1 before
+  // the first cell of a press is painted
+  private int dragRow,
+              dragDay;
+
+//==============================================================================
+  public AvailabilityGrid(Color[] colors) {
+    this.colors = colors;
+    prfMask = SlotMask.week();
+    altMask = SlotMask.week();
+    openMask = SlotMask.week();
+    availType = ScheduleMaker.UNA;
+    dragDay = -1;
+
+    timeLabels = new String[TimeSlots.SLOTS_PER_DAY];
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++)
+      timeLabels[r] = TimeSlots.label(r);
+
+    setOpaque(true);
+    setBackground(Color.WHITE);
+    setPreferredSize(new Dimension(LABEL_W + TimeSlots.WEEK_DAYS*(CELL_W+GAP),
+                                   (TimeSlots.SLOTS_PER_DAY+1)*(CELL_H+GAP)));
+
+    MouseAdapter painter = new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        dragDay = -1;
+        paintCellAt(e.getX(), e.getY());
+      }
+
+      @Override
+      public void mouseDragged(MouseEvent e) {
+        paintCellAt(e.getX(), e.getY());
+      }
+    };
+    addMouseListener(painter);
+    addMouseMotionListener(painter);
+  }
+
+
+
+//==============================================================================
+//  Public methods
+//==============================================================================
+  /**
+   * Shows the employee's availability and the business hours, given as a
+   * weekly mask
+   */
+  public void setEmployee(Employee emp, long[] openMask) {
+    prfMask = emp.availMask(ScheduleMaker.PRF).clone();
+    altMask = emp.availMask(ScheduleMaker.ALT).clone();
+    this.openMask = openMask.clone();
+    repaint();
+  }
+
+
+
+  /**
+   * Sets the availability type that pressing and dragging paints with
+   */
+  public void setAvailType(int type) {
+    availType = type;
+  }
+
+
+
+  /**
+   * Copies the edited availability into the weekly PRF and ALT masks
+   */
+  public void getMasks(long[] prf, long[] alt) {
+    System.arraycopy(prfMask, 0, prf, 0, prfMask.length);
+    System.arraycopy(altMask, 0, alt, 0, altMask.length);
+  }
+
+
+
+//==============================================================================
+//  Painting
+//==============================================================================
+  @Override
+  protected void paintComponent(Graphics g) {
+    Rectangle clip = g.getClipBounds();
+    if(clip == null)
+      clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+    g.setColor(getBackground());
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+    FontMetrics fm = g.getFontMetrics();
+    int textY = (CELL_H + fm.getAscent() - fm.getDescent())/2;
+
+    // Day names along the top
+    g.setColor(Color.BLACK);
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      int x = cellX(d) + (CELL_W - fm.stringWidth(DAYS[d]))/2;
+      g.drawString(DAYS[d], x, textY);
+    }
+
+    // Only the rows that intersect the clip are painted
+    int firstRow = Math.max(0, clip.y/(CELL_H+GAP) - 1);
+    int lastRow = Math.min(TimeSlots.SLOTS_PER_DAY-1,
+                           (clip.y+clip.height)/(CELL_H+GAP));
+    for(int r = firstRow; r <= lastRow; r++) {
+      g.setColor(Color.BLACK);
+      g.drawString(timeLabels[r], 2, cellY(r) + textY);
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+        paintCell(g, r, d, fm, textY);
+    }
+  }
+
+
+
+  private void paintCell(Graphics g, int r, int d, FontMetrics fm, int textY) {
+    int x = cellX(d);
+    int y = cellY(r);
+
+    if(!SlotMask.get(openMask, slot(r, d))) {
+      g.setColor(Color.BLACK);
+      g.fillRect(x, y, CELL_W, CELL_H);
+      g.setColor(Color.WHITE);
+      g.drawString("-", x + (CELL_W - fm.stringWidth("-"))/2, y + textY);
+    }
+    else {
+      g.setColor(colors[codeAt(r, d)]);
+      g.fillRect(x, y, CELL_W, CELL_H);
+    }
+  }
+
+
+
+//==============================================================================
+//  Private helper methods
+//==============================================================================
+  /**
+   * Sets the cell under the point to the current availability type, along
+   * with every cell on the line from the cell the last event painted. Mouse
+   * events come further apart than a cell during a fast drag, and the cells
+   * in between would otherwise be skipped
+   */
+  private void paintCellAt(int px, int py) {
+    int d = (px - LABEL_W)/(CELL_W+GAP);
+    int r = py/(CELL_H+GAP) - 1;
+    if(px < LABEL_W || d >= TimeSlots.WEEK_DAYS || r < 0 ||
+       r >= TimeSlots.SLOTS_PER_DAY)
+      return;
+    if(dragDay < 0) {
+      dragRow = r;
+      dragDay = d;
+    }
+
+    // Walks the line one cell at a time, stepping across days, rows, or both
+    int stepD = (d > dragDay) ? 1 : -1,
+        stepR = (r > dragRow) ? 1 : -1;
+    int spanD = Math.abs(d - dragDay),
+        spanR = Math.abs(r - dragRow);
+    int err = spanD - spanR,
+        twice;
+    int cd = dragDay,
+        cr = dragRow;
+    while(true) {
+      setCell(cr, cd);
+      if(cd == d && cr == r)
+        break;
+      twice = 2*err;
+      if(twice > -spanR) {
+        err -= spanR;
+        cd += stepD;
+      }
+      if(twice < spanD) {
+        err += spanD;
+        cr += stepR;
+      }
+    }
+
+    dragRow = r;
+    dragDay = d;
+  }
+
+
+
+  /**
+   * Sets the cell to the current availability type and repaints just that
+   * cell if it changed
+   */
+  private void setCell(int r, int d) {
+    if(!SlotMask.get(openMask, slot(r, d)) || codeAt(r, d) == availType)
+      return;
+
+    int i = slot(r, d);
+    SlotMask.set(prfMask, i, availType == ScheduleMaker.PRF);
+    SlotMask.set(altMask, i, availType == ScheduleMaker.ALT);
+
+    repaint(cellX(d), cellY(r), CELL_W, CELL_H);
+  }
+
+
+
+  private int codeAt(int r, int d) {
+    if(SlotMask.get(prfMask, slot(r, d)))
+      return ScheduleMaker.PRF;
+    if(SlotMask.get(altMask, slot(r, d)))
+      return ScheduleMaker.ALT;
+    return ScheduleMaker.UNA;
+  }
+
+
+
+  private static int slot(int r, int d) {
+    return d*TimeSlots.SLOTS_PER_DAY + r;
+  }
+
+
+
+  private int cellX(int d) {
+    return LABEL_W + d*(CELL_W+GAP);
+  }
+
+
+
+  private int cellY(int r) {
+    return (r+1)*(CELL_H+GAP);
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is an inverted index from time slots to employees. For every
+ *    (weekday, slot, availability type) it keeps a bitmap with one bit per
+ *    employee, so questions like "who is available at 6:30 PM on Saturday?"
+ *    are answered by reading one bitmap instead of asking every employee.
+ *
+ *    Employees are given a small integer id when added. Ids of removed
+ *    employees are reused so the bitmaps stay as short as the roster.
+ *
+ *    Availability is weekly, so day d of the schedule period is looked up on
+ *    its weekday, and a range of slots that runs past midnight carries on
+ *    into the next day, and from Sunday into Monday.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class AvailabilityIndex {
+  private static final int NUM_CELLS = TimeSlots.WEEK_SLOTS;
+
+  // bits[type][d*SLOTS_PER_DAY + r] is the bitmap of employees with the
+  // availability type on weekday d, slot r
+  private long[][][] bits;
+  private int        numWords;
+
+  private HashMap<Employee, Integer> ids;
+  private ArrayList<Employee>        byId;
+  private ArrayList<Integer>         freeIds;
+
+  // The masks each employee had when last indexed, so that an update only
+  // touches the cells that changed
+  private ArrayList<long[]> indexedPrf,
+                            indexedAlt;
+
+//==============================================================================
+  public AvailabilityIndex() {
+    numWords = 1;
+    bits = new long[3][NUM_CELLS][numWords];
+    ids = new HashMap<Employee, Integer>();
+    byId = new ArrayList<Employee>();
+    freeIds = new ArrayList<Integer>();
+    indexedPrf = new ArrayList<long[]>();
+    indexedAlt = new ArrayList<long[]>();
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Adds an employee to the index
+   */
+  public void add(Employee emp) {
+    if(ids.containsKey(emp)) {
+      update(emp);
+      return;
+    }
+
+    int id;
+    if(freeIds.isEmpty()) {
+      id = byId.size();
+      byId.add(emp);
+      indexedPrf.add(SlotMask.week());
+      indexedAlt.add(SlotMask.week());
+      if(id >= numWords*64)
+        grow();
+    }
+    else {
+      id = freeIds.remove(freeIds.size()-1);
+      byId.set(id, emp);
+    }
+
+    ids.put(emp, id);
+
+    // A freshly indexed employee is unavailable everywhere
+    long[] prf = indexedPrf.get(id);
+    long[] alt = indexedAlt.get(id);
+    for(int w = 0; w < prf.length; w++) {
+      prf[w] = 0L;
+      alt[w] = 0L;
+      setBits(ScheduleMaker.UNA, id, w, SlotMask.wordBits(w, NUM_CELLS), true);
+    }
+    update(emp);
+  }
+
+
+
+  /**
+   * Brings the index up to date with the employee's current availability
+   */
+  public void update(Employee emp) {
+    Integer id = ids.get(emp);
+    if(id == null)
+      return;
+
+    long[] prf = indexedPrf.get(id);
+    long[] alt = indexedAlt.get(id);
+    long[] empPrf = emp.availMask(ScheduleMaker.PRF);
+    long[] empAlt = emp.availMask(ScheduleMaker.ALT);
+    long newPrf, newAlt, oldUna, newUna, valid;
+
+    for(int w = 0; w < prf.length; w++) {
+      newPrf = empPrf[w];
+      newAlt = empAlt[w];
+      if(newPrf == prf[w] && newAlt == alt[w])
+        continue;
+
+      valid = SlotMask.wordBits(w, NUM_CELLS);
+      oldUna = ~(prf[w] | alt[w]) & valid;
+      newUna = ~(newPrf | newAlt) & valid;
+      changeBits(ScheduleMaker.PRF, id, w, prf[w], newPrf);
+      changeBits(ScheduleMaker.ALT, id, w, alt[w], newAlt);
+      changeBits(ScheduleMaker.UNA, id, w, oldUna, newUna);
+      prf[w] = newPrf;
+      alt[w] = newAlt;
+    }
+  }
+
+
+
+  /**
+   * Removes an employee from the index
+   */
+  public void remove(Employee emp) {
+    Integer id = ids.remove(emp);
+    if(id == null)
+      return;
+
+    long[] prf = indexedPrf.get(id);
+    long[] alt = indexedAlt.get(id);
+    for(int w = 0; w < prf.length; w++) {
+      setBits(ScheduleMaker.PRF, id, w, prf[w], false);
+      setBits(ScheduleMaker.ALT, id, w, alt[w], false);
+      setBits(ScheduleMaker.UNA, id, w,
+              ~(prf[w] | alt[w]) & SlotMask.wordBits(w, NUM_CELLS), false);
+    }
+
+    byId.set(id, null);
+    freeIds.add(id);
+  }
+
+
+
+  /**
+   * Returns the employees who have the availability type on day d, slot r
+   */
+  public ArrayList<Employee> available(int type, int d, int r) {
+    return toList(bits[type][cell(d, r)]);
+  }
+
+
+
+  /**
+   * Returns the employees who can work every slot from (inclusive) to
+   * (exclusive) on day d, or nobody if the range is empty. ALT slots only
+   * count when allowAlt is true
+   */
+  public ArrayList<Employee> available(int d, int from, int to,
+                                       Boolean allowAlt) {
+    return toList(combine(d, from, to, allowAlt, true));
+  }
+
+
+
+  /**
+   * Returns the employees who can work at least one slot from (inclusive) to
+   * (exclusive) on day d. ALT slots only count when allowAlt is true
+   */
+  public ArrayList<Employee> availableAny(int d, int from, int to,
+                                          Boolean allowAlt) {
+    return toList(combine(d, from, to, allowAlt, false));
+  }
+
+
+
+  /**
+   * Returns the id the employee was given, or -1 if they are not indexed
+   */
+  public int idOf(Employee emp) {
+    Integer id = ids.get(emp);
+    return id == null ? -1 : id;
+  }
+
+
+
+  /**
+   * Returns the raw bitmap for the availability type on weekday d, slot r.
+   * Bit i of the bitmap is the employee with id i. The array must not be
+   * modified
+   */
+  public long[] bitmap(int type, int d, int r) {
+    return bits[type][cell(d, r)];
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Returns the index of slot r of day d in the weekly cells. r may be past
+   * the end of the day, in which case it wraps into the days after
+   */
+  private static int cell(int d, int r) {
+    return (TimeSlots.weekday(d)*TimeSlots.SLOTS_PER_DAY + r) % NUM_CELLS;
+  }
+
+
+
+  /**
+   * Combines the bitmaps of the slots from (inclusive) to (exclusive) on day
+   * d, keeping the employees available in every slot if all is true, or in
+   * any slot otherwise. Starting from the first slot's bitmap, rather than
+   * from all ones, means only indexed employees can be in the result
+   */
+  private long[] combine(int d, int from, int to, Boolean allowAlt,
+                         Boolean all) {
+    long[] result = new long[numWords];
+    long[] prf, alt;
+    long m;
+    int c;
+
+    for(int r = from; r < to; r++) {
+      c = cell(d, r);
+      prf = bits[ScheduleMaker.PRF][c];
+      alt = bits[ScheduleMaker.ALT][c];
+      for(int w = 0; w < numWords; w++) {
+        m = allowAlt ? (prf[w] | alt[w]) : prf[w];
+        if(r == from)
+          result[w] = m;
+        else if(all)
+          result[w] &= m;
+        else
+          result[w] |= m;
+      }
+    }
+    return result;
+  }
+
+
+
+  /**
+   * Sets or clears the employee's bit in every slot set in the mask, which is
+   * word maskWord of a weekly slot mask
+   */
+  private void setBits(int type, int id, int maskWord, long mask,
+                       Boolean set) {
+    int w = id >>> 6;
+    long bit = 1L << (id & 63);
+    int base = maskWord << 6;
+
+    for(long m = mask; m != 0; m &= m-1) {
+      int i = Long.numberOfTrailingZeros(m);
+      if(set)
+        bits[type][base + i][w] |= bit;
+      else
+        bits[type][base + i][w] &= ~bit;
+    }
+  }
+
+
+
+  /**
+   * Updates only the slots whose bit differs between the two masks
+   */
+  private void changeBits(int type, int id, int maskWord, long oldMask,
+                          long newMask) {
+    setBits(type, id, maskWord, oldMask & ~newMask, false);
+    setBits(type, id, maskWord, newMask & ~oldMask, true);
+  }
+
+
+
+  /**
+   * Doubles the length of every bitmap
+   */
+  private void grow() {
+    int newWords = numWords*2;
+    long[] bigger;
+    for(int t = 0; t < 3; t++)
+      for(int c = 0; c < NUM_CELLS; c++) {
+        bigger = new long[newWords];
+        System.arraycopy(bits[t][c], 0, bigger, 0, numWords);
+        bits[t][c] = bigger;
+      }
+    numWords = newWords;
+  }
+
+
+
+  private ArrayList<Employee> toList(long[] bitmap) {
+    ArrayList<Employee> list = new ArrayList<Employee>();
+    for(int w = 0; w < numWords; w++)
+      for(long m = bitmap[w]; m != 0; m &= m-1)
+        list.add(byId.get((w << 6) + Long.numberOfTrailingZeros(m)));
+    return list;
+  }
+}
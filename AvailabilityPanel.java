@@ -11,7 +11,6 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridBagLayout;
-import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
@@ -39,18 +38,20 @@ public class AvailabilityPanel extends JPanel {
                          prfButton,
                          altButton,
                          unaButton;
-  private JButton[][]    gridButton;
   
   JComboBox<String> namesBox;
   private Employee  editEmp;
   
-  private int     availType;
-  private Color[] colors;
-  private Boolean isPressing;
+  private Color[]          colors;
+  private AvailabilityGrid grid;
   
+  // The edit panel is built the first time an employee is picked and then
+  // refreshed in place for every later pick
+  private JPanel     editPanel;
   private JTextField minField,
                      maxField;
   private JTextArea  commentArea;
+  private JLabel     lastSubLabel;
   
 //==============================================================================
   public AvailabilityPanel(ScheduleMaker sm, Dimension dim, Border b) {
@@ -63,12 +64,11 @@ public class AvailabilityPanel extends JPanel {
     
     buttonListener = new ButtonListener();
     editEmp = null;
-    availType = ScheduleMaker.UNA;
     colors = new Color[3];
     colors[ScheduleMaker.PRF] = Color.GREEN;
     colors[ScheduleMaker.ALT] = Color.ORANGE;
     colors[ScheduleMaker.UNA] = Color.GRAY;
-    isPressing = false;
+    grid = new AvailabilityGrid(colors);
     
     add(setupSelectionPanel(), BorderLayout.CENTER);
     add(setupSavePanel(), BorderLayout.SOUTH);
@@ -132,9 +132,21 @@ public class AvailabilityPanel extends JPanel {
   
   
   private void edit() {
-    GUI.removeCenter((BorderLayout)getLayout(), this, "AvailabilityPanel/edit");
-    add(setupEditPanel(), BorderLayout.CENTER);
-    revalidate();
+    grid.setEmployee(editEmp, sm.getOpenMasks());
+    
+    if(editPanel == null) {
+      GUI.removeCenter((BorderLayout)getLayout(), this,
+                       "AvailabilityPanel/edit");
+      editPanel = setupEditPanel();
+      add(editPanel, BorderLayout.CENTER);
+      revalidate();
+    }
+    
+    int[] reqHours = editEmp.requestedHours();
+    minField.setText(Integer.toString(reqHours[0]));
+    maxField.setText(Integer.toString(reqHours[1]));
+    commentArea.setText(editEmp.getComment());
+    lastSubLabel.setText(editEmp.getLastSub());
   }
   
   
@@ -152,53 +164,9 @@ public class AvailabilityPanel extends JPanel {
   
   
   private JScrollPane setupGridPanel() {
-    JPanel panel = new JPanel();
-    panel.setBackground(Color.WHITE);
-    panel.setLayout(new GridLayout(ScheduleMaker.NUM_ROWS+1, 8, 1, 1));
-    
-    gridButton = new JButton[ScheduleMaker.NUM_ROWS][7];
-    JLabel[] times = new JLabel[ScheduleMaker.NUM_ROWS];
-    
-    int time = 0;
-    for(int r = 0; r < ScheduleMaker.NUM_ROWS; r++) {
-      for(int d = 0; d < 7; d++) {
-        gridButton[r][d] = new JButton();
-        if(businessIsOpen(time, d)) {
-          gridButton[r][d].setBackground(colors[editEmp.avail(r, d)]);
-          gridButton[r][d].addMouseListener(buttonListener);
-        }
-        else {
-          gridButton[r][d].setBackground(Color.BLACK);
-          gridButton[r][d].setText("-");
-          gridButton[r][d].setForeground(Color.WHITE);
-        }
-      }
-      
-      times[r] = new JLabel(sm.timeIntToStr(time));
-      if(time % 100 == 30)
-        time += 70;
-      else
-        time += 30;
-    }
-    
-    JLabel[] days = {new JLabel("Monday"), new JLabel("Tuesday"),
-                     new JLabel("Wednesday"), new JLabel("Thursday"),
-                     new JLabel("Friday"), new JLabel("Saturday"),
-                     new JLabel("Sunday")};
-    
-    panel.add(GUI.msgPanel(null, null));
-    for(int i = 0; i < days.length; i++) {
-      days[i].setHorizontalAlignment(JLabel.CENTER);
-      panel.add(days[i]);
-    }
-    
-    for(int r = 0; r < ScheduleMaker.NUM_ROWS; r++) {
-      panel.add(times[r]);
-      for(int d = 0; d < 7; d++)
-        panel.add(gridButton[r][d]);
-    }
-    
-    JScrollPane outerPanel = new JScrollPane(panel);
+    JScrollPane outerPanel = new JScrollPane(grid);
+    outerPanel.getViewport().setBackground(Color.WHITE);
+    outerPanel.getVerticalScrollBar().setUnitIncrement(16);
     return outerPanel;
   }
   
@@ -211,11 +179,11 @@ public class AvailabilityPanel extends JPanel {
     
     Dimension dim = new Dimension(100, 30);
     
-    int[] reqHours = editEmp.requestedHours();
-    minField = new JTextField(Integer.toString(reqHours[0]));
+    minField = new JTextField();
     minField.setPreferredSize(dim);
-    maxField = new JTextField(Integer.toString(reqHours[1]));
+    maxField = new JTextField();
     maxField.setPreferredSize(dim);
+    lastSubLabel = new JLabel();
     
     prfButton = new JButton("Preferred");
     prfButton.setForeground(colors[ScheduleMaker.PRF]);
@@ -249,7 +217,7 @@ public class AvailabilityPanel extends JPanel {
     panel.add(clsButton);
     panel.add(GUI.msgPanel("", dim));
     panel.add(new JLabel("Last edit date:"));
-    panel.add(new JLabel(editEmp.getLastSub()));
+    panel.add(lastSubLabel);
     
     return panel;
   }
@@ -261,7 +229,7 @@ public class AvailabilityPanel extends JPanel {
     panel.setBackground(Color.WHITE);
     panel.setPreferredSize(new Dimension(mainPanelWidth, 50));
     
-    commentArea = new JTextArea(editEmp.getComment());
+    commentArea = new JTextArea();
     commentArea.setPreferredSize(new Dimension(700, 40));
     commentArea.setLineWrap(true);
     commentArea.setBorder(BorderFactory.createLineBorder(Color.BLACK));
@@ -289,13 +257,24 @@ public class AvailabilityPanel extends JPanel {
           if(comment.equals(""))
             comment = "None";
           
+          long[] prf = SlotMask.week();
+          long[] alt = SlotMask.week();
+          grid.getMasks(prf, alt);
+          int[] oldReq = editEmp.requestedHours();
+          String oldComment = editEmp.getComment(),
+                 oldLastSub = editEmp.getLastSub();
+          long[] oldPrf = editEmp.availMask(ScheduleMaker.PRF),
+                 oldAlt = editEmp.availMask(ScheduleMaker.ALT);
           editEmp.edit(Integer.parseInt(minField.getText()),
                        Integer.parseInt(maxField.getText()),
-                       comment, sm.getDate(), extractCode());
+                       comment, sm.getDate(), prf, alt);
           try {
             sm.editEmployee(editEmp, null, null);
           }
           catch(Exception e) {
+            // Not saved, so the employee goes back to what is on disk
+            editEmp.edit(oldReq[0], oldReq[1], oldComment, oldLastSub, oldPrf,
+                         oldAlt);
             GUI.msgPopup("ERROR @ AvailabilityPanel/ButtonListener/save : " +e);
             return;
           }
@@ -304,93 +283,31 @@ public class AvailabilityPanel extends JPanel {
         }
       }
       else if(src.equals(prfButton))
-        availType = ScheduleMaker.PRF;
+        grid.setAvailType(ScheduleMaker.PRF);
       else if(src.equals(altButton))
-        availType = ScheduleMaker.ALT;
+        grid.setAvailType(ScheduleMaker.ALT);
       else if(src.equals(unaButton))
-        availType = ScheduleMaker.UNA;
-      else
-        src.setBackground(colors[availType]);
+        grid.setAvailType(ScheduleMaker.UNA);
     }
      
     @Override
     public void mouseEntered(MouseEvent e) {
       JButton src = (JButton)e.getSource();
-      if(src.equals(saveButton) || src.equals(prfButton) ||
-         src.equals(altButton) || src.equals(unaButton))
-        src.setBackground(GUI.HIGHLIGHT);
-      else {
-        if(isPressing)
-          src.setBackground(colors[availType]);
-      }
+      src.setBackground(GUI.HIGHLIGHT);
     }
  
     @Override
     public void mouseExited(MouseEvent e) {
       JButton src = (JButton)e.getSource();
-      if(src.equals(saveButton) || src.equals(prfButton) ||
-         src.equals(altButton) || src.equals(unaButton))
-        src.setBackground(Color.WHITE);
-      else {
-        if(isPressing)
-          src.setBackground(colors[availType]);
-      }
+      src.setBackground(Color.WHITE);
     }
    
     @Override
     public void mousePressed(MouseEvent e) {
-      isPressing = true;
     }
     
     @Override
     public void mouseReleased(MouseEvent e) {
-      isPressing = false;
     }
   }
-  
-  
-  
-//==============================================================================
-//  Private helper methods
-//==============================================================================
-  /**
-   * Extracts the employee's availability data from the colored grid buttons
-   * into a 2-d array of numbers representing the availability types.
-   */
-  private byte[][] extractCode() {
-    byte[][] code = new byte[ScheduleMaker.NUM_ROWS][7];
-    
-    for(int r = 0; r < ScheduleMaker.NUM_ROWS; r++)
-      for(int d = 0; d < 7; d++)
-        code[r][d] = (byte)colorToCode(gridButton[r][d].getBackground());
-    
-    return code;
-  }
-  
-  
-  
-  
-  private int colorToCode(Color c) {
-    if(c.equals(colors[ScheduleMaker.PRF]))
-      return ScheduleMaker.PRF;
-    else if(c.equals(colors[ScheduleMaker.ALT]))
-      return ScheduleMaker.ALT;
-    else
-      return ScheduleMaker.UNA;
-  }
-  
-  
-  
-  private Boolean businessIsOpen(int time, int day) {
-    if(sm.openCloseInt[0][day] == ScheduleMaker.HOURS_24)
-      return true;
-    
-    if(sm.openCloseInt[0][day] == ScheduleMaker.HOURS_CLOSED)
-      return false;
-    
-    if(time >= sm.openCloseInt[0][day] && time < sm.openCloseInt[1][day])
-      return true;
-    else
-      return false;
-  }
 }
\ No newline at end of file
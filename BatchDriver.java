@@ -0,0 +1,238 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class generates and exports the schedule without the graphic user
+ *    interface, for use on a server or from cron. Every store directory given
+ *    on the command line is loaded, scheduled, and exported in turn in the
+ *    same JVM, and a failing store doesn't stop the others:
+ *
+ *      java BatchDriver [-t millis] [-s minutes] [-p days] [-m file]
+ *                       storeDir...
+ *
+ *    -t sets how long each schedule is searched for (default 2000). -s and -p
+ *    set the slot length and the days in the schedule period (see TimeSlots);
+ *    they only take effect if given before anything has loaded TimeSlots,
+ *    which is the case when running from main(). -m writes the time taken by
+ *    each operation over all the stores (see Metrics) to the file at the end.
+ *
+ *    Each store prints one tab-separated line to stdout when it succeeds:
+ *
+ *      ok  <storeDir>  <exported file>  <milliseconds>
+ *
+ *    and problems are printed to stderr in the same form:
+ *
+ *      warning  <storeDir>  load     <message>
+ *      error    <storeDir>  <stage>  <message>
+ *
+ *    where <stage> is load, generate, or export. The exit code is EXIT_OK if
+ *    every store succeeded, otherwise the highest of the codes below among the
+ *    stores that failed. A metrics file that can't be written is only a
+ *    warning, with "-" for the store and metrics for the stage, and so is a
+ *    store whose journal can't be closed, with close for the stage. So is a
+ *    slot or period length set with -D that isn't supported, with "-" and
+ *    settings, as the default is used instead.
+ *
+ *    No AWT or Swing class is loaded.
+ */
+
+import java.io.File;
+
+public class BatchDriver {
+  public static final int EXIT_OK = 0,
+                          EXIT_USAGE = 2,
+                          EXIT_LOAD = 3,
+                          EXIT_GENERATE = 4,
+                          EXIT_EXPORT = 5;
+
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    System.exit(run(args));
+  }
+
+
+
+  /**
+   * Runs the stores given by the arguments and returns the exit code
+   */
+  public static int run(String[] args) {
+    long millis = -1;
+    int slotMinutes = 0,
+        periodDays = 0;
+    String metricsFile = null;
+    int first = 0;
+
+    while(first+1 < args.length && args[first].startsWith("-")) {
+      String value = args[first+1];
+      if(args[first].equals("-t")) {
+        millis = parseNumber(value);
+        if(millis < 0) {
+          report("error", "-", "usage", "bad time \"" +value +"\"");
+          return EXIT_USAGE;
+        }
+      }
+      else if(args[first].equals("-s")) {
+        slotMinutes = (int)parseNumber(value);
+        System.setProperty(TimeSlots.SLOT_MINUTES_PROPERTY, value.trim());
+      }
+      else if(args[first].equals("-p")) {
+        periodDays = (int)parseNumber(value);
+        System.setProperty(TimeSlots.PERIOD_DAYS_PROPERTY, value.trim());
+      }
+      else if(args[first].equals("-m"))
+        metricsFile = value;
+      else
+        break;
+      first += 2;
+    }
+
+    if(first >= args.length || args[first].startsWith("-")) {
+      System.err.println("usage: java BatchDriver [-t millis] [-s minutes]"
+                         +" [-p days] [-m file] storeDir...");
+      return EXIT_USAGE;
+    }
+
+    // TimeSlots reads the settings when it is loaded, which is only now
+    if(slotMinutes != 0 && slotMinutes != TimeSlots.SLOT_MINUTES) {
+      report("error", "-", "usage", "unsupported slot length \""
+             +slotMinutes +"\"");
+      return EXIT_USAGE;
+    }
+    if(periodDays != 0 && periodDays != TimeSlots.NUM_DAYS) {
+      report("error", "-", "usage", "unsupported period \"" +periodDays +"\"");
+      return EXIT_USAGE;
+    }
+    // Left are settings given with -D rather than -s or -p
+    for(int i = 0; i < TimeSlots.settingWarnings().size(); i++)
+      report("warning", "-", "settings", TimeSlots.settingWarnings().get(i));
+
+    int exitCode = EXIT_OK;
+    for(int i = first; i < args.length; i++)
+      exitCode = Math.max(exitCode, runStore(new File(args[i]), millis));
+
+    if(metricsFile != null) {
+      try {
+        Metrics.write(new File(metricsFile));
+      }
+      catch(Exception | LinkageError e) {
+        report("warning", "-", "metrics", message(e));
+      }
+    }
+    return exitCode;
+  }
+
+
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Loads, schedules, and exports one store and returns its exit code
+   */
+  private static int runStore(File dir, long millis) {
+    String store = dir.getPath();
+    long began = System.nanoTime();
+    ScheduleMaker sm;
+
+    if(!dir.isDirectory()) {
+      report("error", store, "load", "not a directory");
+      return EXIT_LOAD;
+    }
+
+    // Checked before loading, which would otherwise create a roster file in a
+    // directory that isn't a store
+    if(!new File(dir, ScheduleMaker.HOURS_FILE).exists()) {
+      report("error", store, "load", "no " +ScheduleMaker.HOURS_FILE);
+      return EXIT_LOAD;
+    }
+
+    try {
+      sm = new ScheduleMaker(dir, null);
+    }
+    catch(Exception | LinkageError e) {
+      report("error", store, "load", message(e));
+      return EXIT_LOAD;
+    }
+
+    for(int i = 0; i < sm.getLoadWarnings().size(); i++)
+      report("warning", store, "load", sm.getLoadWarnings().get(i));
+
+    if(millis >= 0)
+      sm.setSolveMillis(millis);
+
+    ScheduleJob job = sm.newScheduleJob();
+    try {
+      job.run(null);
+    }
+    catch(Exception | LinkageError e) {
+      // The job only writes the file once the schedule is done, so a missing
+      // table means it failed while generating
+      report("error", store, job.isGenerated() ? "export" : "generate",
+             message(e));
+      return job.isGenerated() ? EXIT_EXPORT : EXIT_GENERATE;
+    }
+    finally {
+      close(sm, store);
+    }
+    job.apply();
+
+    System.out.println("ok\t" +store +"\t"
+                       +new File(dir, job.getFileName()).getPath() +"\t"
+                       +(System.nanoTime()-began)/1000000);
+    return EXIT_OK;
+  }
+
+
+
+  /**
+   * Closes the store's journal. Everything was already saved, so a failure
+   * is only a warning
+   */
+  private static void close(ScheduleMaker sm, String store) {
+    try {
+      sm.close();
+    }
+    catch(Exception | LinkageError e) {
+      report("warning", store, "close", message(e));
+    }
+  }
+
+
+
+  /**
+   * Prints one tab-separated problem line to stderr. Tabs and line breaks in
+   * the message are replaced by spaces to keep it on one line
+   */
+  private static void report(String level, String store, String stage,
+                             String msg) {
+    System.err.println(level +"\t" +store +"\t" +stage +"\t"
+                       +msg.replaceAll("[\t\r\n]+", " "));
+  }
+
+
+
+  /**
+   * Returns the number in the text, or -1 if it isn't a number
+   */
+  private static long parseNumber(String text) {
+    try {
+      return Long.parseLong(text.trim());
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+
+
+
+  /**
+   * Returns the message of the problem. A class that can't be loaded, such as
+   * one of Apache POI's when it isn't installed, only gives its name as the
+   * message, so the error's type is kept with it
+   */
+  private static String message(Throwable e) {
+    if(e instanceof LinkageError || e.getMessage() == null)
+      return e.toString();
+    return e.getMessage();
+  }
+}
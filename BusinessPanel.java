@@ -3,13 +3,15 @@
  * 
  * Description:
  *    This class consists of the GUI panel that allows users to perform
- *    functions on the business information, such as the editing of store hours
- *    and setting up scheduling constraints.
+ *    functions on the business information, such as the editing of store hours,
+ *    setting up scheduling constraints, and setting the staffing demand.
  */
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -21,7 +23,12 @@ import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
 import javax.swing.border.Border;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 
 public class BusinessPanel extends JPanel {
   // Default serial version
@@ -34,10 +41,23 @@ public class BusinessPanel extends JPanel {
   private OptionListener oListener;
   private JButton        hoursButton,
                          constraintButton,
+                         demandButton,
                          saveButton,
                          selectedButton;
   
   private JComboBox<String>[][] hoursBox;
+  private JTextArea             constraintArea;
+  
+  // The demand being edited and the current shifts compared with the saved
+  // demand. The demand is weekly, so the table shows one week of the period
+  // against it at a time
+  private StaffingDemand    editDemand;
+  private CoverageTable     coverage;
+  private DemandTableModel  demandModel;
+  private JComboBox<String> demandPosBox,
+                            demandWeekBox;
+  private int               demandWeek;
+  private JLabel            gapLabel;
 
 //==============================================================================
   public BusinessPanel(ScheduleMaker sm, Dimension dim, Border b) {
@@ -77,7 +97,7 @@ public class BusinessPanel extends JPanel {
     JPanel panel = new JPanel();
     panel.setBackground(Color.WHITE);
     
-    int numButtons = 2;
+    int numButtons = 3;
     int buttonW = (mainPanelWidth/numButtons)-(4*numButtons);
     Dimension buttonDim = new Dimension(buttonW, GUI.TEXT_WRAP_HEIGHT);
     Border buttBorder = BorderFactory.createMatteBorder(0, 1, 1, 1, Color.GRAY);
@@ -94,9 +114,15 @@ public class BusinessPanel extends JPanel {
     constraintButton.setPreferredSize(buttonDim);
     constraintButton.setBackground(Color.WHITE);
     constraintButton.addMouseListener(oListener);
+    demandButton = new JButton("Edit staffing demand");
+    demandButton.setBorder(buttBorder);
+    demandButton.setPreferredSize(buttonDim);
+    demandButton.setBackground(Color.WHITE);
+    demandButton.addMouseListener(oListener);
     
     panel.add(hoursButton);
     panel.add(constraintButton);
+    panel.add(demandButton);
     return panel;
   }
   
@@ -127,45 +153,37 @@ public class BusinessPanel extends JPanel {
     panel.setBackground(Color.WHITE);
     panel.setLayout(new GridLayout(8, 3, 10, 10));
     
-    String[] hours = getTimeRange(0, 2330);
-    hoursBox = (JComboBox<String>[][]) new JComboBox[2][7];
+    hoursBox = (JComboBox<String>[][]) new JComboBox[2][TimeSlots.WEEK_DAYS];
     HoursBoxListener hbl = new HoursBoxListener();
     
     for(int t = 0; t < 2; t++)
-      for(int d = 0; d < 7; d++) {
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
         hoursBox[t][d] = new JComboBox<String>();
         hoursBox[t][d].setBackground(Color.WHITE);
-        hoursBox[t][d].addItem("Closed");
-        hoursBox[t][d].addItem("24 HR");
-        for(int i = 0; i < hours.length; i++)
-          hoursBox[t][d].addItem(hours[i]);
+        hoursBox[t][d].addItem(TimeSlots.CLOSED);
+        hoursBox[t][d].addItem(TimeSlots.OPEN_24);
+        for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++)
+          hoursBox[t][d].addItem(TimeSlots.menuLabel(r));
       }
     
     // Set each combo box to appropriate time
     int index;
     if(sm.hoursFileExists()) {
       for(int t = 0; t < 2; t++)
-        for(int d = 0; d < 7; d++) {
+        for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
           if(sm.openCloseInt[t][d] == ScheduleMaker.HOURS_CLOSED)
             hoursBox[t][d].setSelectedIndex(0);
           else if(sm.openCloseInt[t][d] == ScheduleMaker.HOURS_24)
             hoursBox[t][d].setSelectedIndex(1);
           else {
-            index = (sm.openCloseInt[t][d]/100)*2;
-            
-            // The index for x:30 is 1 after x:00
-            if(sm.openCloseInt[t][d] % 100 == 30)
-              index++;
-            
             // To skip the two indices for "Closed" and "24 HR" options
-            index += 2;
-            
+            index = TimeSlots.toSlot(sm.openCloseInt[t][d]) + 2;
             hoursBox[t][d].setSelectedIndex(index);
           }
         }
     }
     
-    for(int d = 0; d < 7; d++) {
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
       hoursBox[0][d].addActionListener(hbl);
       hoursBox[1][d].addActionListener(hbl);
     }
@@ -178,7 +196,7 @@ public class BusinessPanel extends JPanel {
     panel.add(new JLabel("Opening time"));
     panel.add(new JLabel("Closing time"));
     
-    for(int d = 0; d < 7; d++) {
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
       panel.add(new JLabel(days[d]));
       for(int t = 0; t < 2; t++)
         panel.add(hoursBox[t][d]);
@@ -203,21 +221,116 @@ public class BusinessPanel extends JPanel {
   private JPanel setupConstraintsPanel() {
     JPanel panel = new JPanel();
     panel.setBackground(Color.WHITE);
-    panel.add(GUI.msgPanel(null, new Dimension(200, 200)));
+    panel.setLayout(new BorderLayout());
     
-    String msg1 = "This option's purpose is to load any existing contraints "
-                 +"from a file onto the display, then allow users to create, "
-                 +"edit, or remove constraints.";
-    panel.add(new JLabel(msg1));
+    String help = "<html>One constraint per line. Lines starting with # are "
+                 +"ignored. A position of * means every employee.<br>"
+                 +"headcount, &lt;position&gt;, &lt;day or Any&gt;, "
+                 +"&lt;from&gt;, &lt;to&gt;, &lt;min&gt;, &lt;max&gt;"
+                 +"&nbsp;&nbsp;&nbsp;e.g. headcount, Supervisor, Sun, "
+                 +"12:00AM, 12:00AM, 0, 2<br>"
+                 +"maxdays, &lt;position&gt;, &lt;consecutive days&gt;"
+                 +"&nbsp;&nbsp;&nbsp;e.g. maxdays, *, 5<br>"
+                 +"minrest, &lt;position&gt;, &lt;hours between shifts&gt;"
+                 +"&nbsp;&nbsp;&nbsp;e.g. minrest, Cashier, 10</html>";
+    panel.add(new JLabel(help), BorderLayout.NORTH);
     
-    String msg2 = "A constraint is something like limiting the automatic "
-                  +"scheduler to assign a maximum of 2 supervisors on a "
-                  +"Sunday, for example.";
-    panel.add(new JLabel(msg2));
+    constraintArea = new JTextArea(sm.getConstraints().getText());
+    constraintArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+    constraintArea.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+    JScrollPane scroll = new JScrollPane(constraintArea);
+    scroll.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+    panel.add(scroll, BorderLayout.CENTER);
+    
+    JPanel outerPanel = new JPanel();
+    outerPanel.setBackground(Color.WHITE);
+    outerPanel.setLayout(new BorderLayout());
+    outerPanel.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+    outerPanel.add(panel, BorderLayout.CENTER);
+    
+    return outerPanel;
+  }
+  
+  private JPanel setupDemandPanel() {
+    editDemand = sm.getDemand();
+    coverage = sm.getCoverage();
+    
+    // Positions held by employees come first, then any that only have demand
+    ArrayList<String> positions = sm.getPositions();
+    ArrayList<String> demanded = editDemand.getPositions();
+    for(int i = 0; i < demanded.size(); i++)
+      if(!positions.contains(demanded.get(i)))
+        positions.add(demanded.get(i));
+    
+    if(positions.size() == 0)
+      return GUI.msgPanel("Add employees before setting the staffing demand.",
+                          null);
+    
+    demandPosBox = new JComboBox<String>();
+    demandPosBox.setBackground(Color.WHITE);
+    for(int i = 0; i < positions.size(); i++)
+      demandPosBox.addItem(positions.get(i));
+    demandPosBox.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        demandModel.setPosition((String)demandPosBox.getSelectedItem());
+        updateGapLabel();
+      }
+    });
+    
+    demandModel = new DemandTableModel();
+    demandModel.setPosition(positions.get(0));
+    JTable table = new JTable(demandModel);
+    table.setDefaultRenderer(Integer.class, new DemandCellRenderer());
+    table.setRowHeight(20);
+    table.getTableHeader().setReorderingAllowed(false);
+    
+    gapLabel = new JLabel();
+    updateGapLabel();
+    
+    JPanel top = new JPanel();
+    top.setBackground(Color.WHITE);
+    top.add(new JLabel("Employees needed per " +TimeSlots.SLOT_MINUTES
+                       +" minutes for"));
+    top.add(demandPosBox);
+    if(TimeSlots.NUM_WEEKS > 1) {
+      top.add(new JLabel("   every week; shown against week"));
+      top.add(setupDemandWeekBox());
+    }
+    top.add(new JLabel("   (red: the current schedule is short)"));
+    
+    JPanel panel = new JPanel();
+    panel.setBackground(Color.WHITE);
+    panel.setLayout(new BorderLayout());
+    panel.setBorder(BorderFactory.createEmptyBorder(0, 20, 0, 20));
+    panel.add(top, BorderLayout.NORTH);
+    panel.add(new JScrollPane(table), BorderLayout.CENTER);
+    panel.add(gapLabel, BorderLayout.SOUTH);
     
     return panel;
   }
   
+  
+  
+  /**
+   * Creates the menu of the weeks of the period to compare the demand with
+   */
+  private JComboBox<String> setupDemandWeekBox() {
+    demandWeek = 0;
+    demandWeekBox = new JComboBox<String>();
+    demandWeekBox.setBackground(Color.WHITE);
+    for(int w = 0; w < TimeSlots.NUM_WEEKS; w++)
+      demandWeekBox.addItem(Integer.toString(w+1));
+    demandWeekBox.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        demandWeek = demandWeekBox.getSelectedIndex();
+        demandModel.fireTableDataChanged();
+      }
+    });
+    return demandWeekBox;
+  }
+  
 //==============================================================================
 //  Methods for each option
 //==============================================================================
@@ -239,11 +352,20 @@ public class BusinessPanel extends JPanel {
   
   
   
+  private void editDemand() {
+    GUI.removeCenter((BorderLayout)getLayout(), this,
+      "BusinessPanel/editDemand");
+    add(setupDemandPanel(), BorderLayout.CENTER);
+    revalidate();
+  }
+  
+  
+  
   private void saveHours() {
-    String hours[][] = new String[2][7];
+    String hours[][] = new String[2][TimeSlots.WEEK_DAYS];
     int index;
     
-    for(int d = 0; d < 7; d++)
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
       for(int t = 0; t < 2; t++) {
         index = hoursBox[t][d].getSelectedIndex();
         hours[t][d] = hoursBox[t][d].getItemAt(index);
@@ -263,7 +385,37 @@ public class BusinessPanel extends JPanel {
   
   
   private void saveConstraints() {
-    GUI.msgPopup("Constraint functionality not implemented");
+    try {
+      sm.writeConstraints(constraintArea.getText());
+    }
+    catch(Exception e) {
+      GUI.msgPopup("Constraints not saved. " +e.getMessage());
+      return;
+    }
+    
+    GUI.msgPopup("Scheduling constraints saved");
+  }
+  
+  
+  
+  private void saveDemand() {
+    if(editDemand == null) {
+      GUI.msgPopup("Nothing to save");
+      return;
+    }
+    
+    try {
+      sm.writeDemand(editDemand);
+    }
+    catch(Exception e) {
+      GUI.msgPopup("ERROR @ BusinessPanel/saveDemand() : " +e);
+      return;
+    }
+    
+    coverage = sm.getCoverage();
+    demandModel.fireTableDataChanged();
+    updateGapLabel();
+    GUI.msgPopup("Staffing demand saved");
   }
 
 //==============================================================================
@@ -285,12 +437,16 @@ public class BusinessPanel extends JPanel {
         editBusinessHours();
       else if(src.equals(constraintButton))
         editConstraints();
+      else if(src.equals(demandButton))
+        editDemand();
       else if(src.equals(saveButton) && selectedButton == null)
         GUI.msgPopup("Nothing to save");
       else if(src.equals(saveButton) && selectedButton.equals(hoursButton))
         saveHours();
       else if(src.equals(saveButton) && selectedButton.equals(constraintButton))
         saveConstraints();
+      else if(src.equals(saveButton) && selectedButton.equals(demandButton))
+        saveDemand();
       else;
     }
   
@@ -323,7 +479,7 @@ public class BusinessPanel extends JPanel {
       JComboBox<String> b = (JComboBox<String>)e.getSource();
       
       if(b.getSelectedIndex() == 0 || b.getSelectedIndex() == 1)
-        for(int d = 0; d < 7; d++) {
+        for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
           if(b.equals(hoursBox[0][d]))
             hoursBox[1][d].setSelectedIndex(b.getSelectedIndex());
           else if(b.equals(hoursBox[1][d]))
@@ -332,80 +488,116 @@ public class BusinessPanel extends JPanel {
         }
     }
   }
-//==============================================================================
-//  Private methods
-//==============================================================================
+  
+  
+  
   /**
-   * Converts the input time, which uses the 24-hour clock format, into a String
-   * object that uses the 12-hour format
+   * One row per slot, with the time followed by the number needed each day
+   * for the selected position
    */
-  private String from24to12(int time) {
-    int hour = time / 100;
-    int min = time % 100;
-    Boolean pm = false;
-
-    if(hour >= 12)
-      pm = true;
-    if(hour > 12)
-      hour -= 12;
-    if(hour == 0)
-      hour = 12;
-
-    String output = hour +":";
-    if(min == 0)
-      output += "00";
-    else
-      output += min;
-    
-    if(pm)
-      output += " PM";
-    else
-      output += " AM";
-
-    return output;
+  private class DemandTableModel extends AbstractTableModel {
+    // Default serial version
+    private static final long serialVersionUID = 1L;
+    
+    private final String[] columns = {"Time", "Monday", "Tuesday",
+                                      "Wednesday", "Thursday", "Friday",
+                                      "Saturday", "Sunday"};
+    private String position;
+    
+    public void setPosition(String position) {
+      this.position = position;
+      fireTableDataChanged();
+    }
+    
+    public String getPosition() {
+      return position;
+    }
+    
+    @Override
+    public int getRowCount() {
+      return TimeSlots.SLOTS_PER_DAY;
+    }
+    
+    @Override
+    public int getColumnCount() {
+      return columns.length;
+    }
+    
+    @Override
+    public String getColumnName(int c) {
+      return columns[c];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int c) {
+      return (c == 0) ? String.class : Integer.class;
+    }
+    
+    @Override
+    public boolean isCellEditable(int r, int c) {
+      return c > 0;
+    }
+    
+    @Override
+    public Object getValueAt(int r, int c) {
+      if(c == 0)
+        return TimeSlots.label(r);
+      return editDemand.get(position, c-1, r);
+    }
+    
+    @Override
+    public void setValueAt(Object value, int r, int c) {
+      if(value == null)
+        return;
+      editDemand.set(position, c-1, r, (Integer)value);
+      fireTableCellUpdated(r, c);
+    }
   }
   
   
   
   /**
-   * Returns a String[] of times in 12-hour format in 30-minute intervals.
-   * Minimum input value is 0 and maximum input value is 2330.
-   * The returned array wraps around, meaning you can start the range at 2000
-   * and end at 430. It will return times from 8:00 PM to 4:30 AM.
-   * Correct usage is assumed.
-   * 
-   * @param start  Time in 24-hour format in the format xx00 or xx30 
-   * @param end    Time in 24-hour format in the format xx00 or xx30
-   * @return       Times in String[] from {@code start} to {@code end}
+   * Shows the number needed along with the number working in the current
+   * schedule, in red where the schedule is short
    */
-  private String[] getTimeRange(int start, int end) {
-    // Commented out because correct usage is assumed
-    //if(start < 0 || start > 2330 ||
-    //   end < 0 || end > 2330 ||
-    //   (start%100 != 0 && start%100 != 30) ||
-    //   (end%100 != 0 && end%100 != 30))
-    //  return null;
-    
-    ArrayList<String> timeList = new ArrayList<String>();
-    int time = start;
-    
-    timeList.add(from24to12(time));
-    while(time >= 0) {
-      if(time % 100 == 0)
-        time += 30;
-      else
-        time += 70;
-      
-      if(time == 2400)
-        time = 0;
+  private class DemandCellRenderer extends DefaultTableCellRenderer {
+    // Default serial version
+    private static final long serialVersionUID = 1L;
+    
+    private final Color SHORT = new Color(255, 200, 200);
+    
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value,
+      boolean isSelected, boolean hasFocus, int r, int c) {
       
-      timeList.add(from24to12(time));
+      super.getTableCellRendererComponent(table, value, isSelected, hasFocus,
+                                          r, c);
+      String pos = demandModel.getPosition();
+      int need = (Integer)value;
+      int working = coverage.staffed(pos, demandWeek*TimeSlots.WEEK_DAYS + c-1,
+                                     r, r+1);
       
-      // To quit the loop
-      if(time == end)
-        time = -1;
+      setHorizontalAlignment(CENTER);
+      setText(need == 0 && working == 0 ? "" : need +"  (" +working +")");
+      if(!isSelected)
+        setBackground(working < need ? SHORT : Color.WHITE);
+      return this;
     }
-    
-    return timeList.toArray(new String[timeList.size()]);
+  }
+//==============================================================================
+//  Private methods
+//==============================================================================
+  /**
+   * Shows how many employees of the selected position the current schedule
+   * is missing each day, against the saved demand
+   */
+  private void updateGapLabel() {
+    String pos = demandModel.getPosition();
+    String text = "Current schedule, short / needed:";
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+      text += "   " +TimeSlots.dayName(d) +" "
+              +coverage.shortfall(pos, d, 0, TimeSlots.SLOTS_PER_DAY) +"/"
+              +coverage.required(pos, d, 0, TimeSlots.SLOTS_PER_DAY);
+    gapLabel.setText(text);
   }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class defines one scheduling constraint. Constraints are written one
+ *    per line, with comma-separated fields:
+ *
+ *      headcount, <position>, <day>, <from>, <to>, <min>, <max>
+ *          Between <from> and <to> on <day>, at least <min> and at most <max>
+ *          employees holding <position> are working. <day> is Mon..Sun or
+ *          "Any". A <to> at or before <from> is on the next day, so the
+ *          range runs past midnight.
+ *
+ *      maxdays, <position>, <days>
+ *          Employees holding <position> work at most <days> days in a row.
+ *
+ *      minrest, <position>, <hours>
+ *          Employees holding <position> get at least <hours> hours off
+ *          between the end of one shift and the start of the next.
+ *
+ *    A <position> of "*" applies the constraint to everyone (for headcount,
+ *    to the total number of employees working).
+ */
+
+public class Constraint {
+  public static final int HEADCOUNT = 0,
+                          MAX_DAYS = 1,
+                          MIN_REST = 2;
+
+  public static final String ANY_POSITION = "*";
+  public static final int    ANY_DAY = -1;
+
+  private static final String[] TYPE_NAMES = {"headcount", "maxdays",
+                                              "minrest"};
+  private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu",
+                                             "Fri", "Sat", "Sun"};
+
+  private int    type;
+  private String position;
+  private int    day,
+                 fromSlot,
+                 toSlot,
+                 min,
+                 max,
+                 value;
+
+//==============================================================================
+  private Constraint(int type, String position) {
+    this.type = type;
+    this.position = position;
+    day = ANY_DAY;
+    fromSlot = 0;
+    toSlot = TimeSlots.SLOTS_PER_DAY;
+  }
+
+
+
+  /**
+   * Parses one line in the format described above. Throws an Exception
+   * describing the problem if the line is not a valid constraint
+   */
+  public static Constraint parse(String line) throws Exception {
+    String[] f = line.split(",");
+    for(int i = 0; i < f.length; i++)
+      f[i] = f[i].trim();
+
+    int type = -1;
+    for(int t = 0; t < TYPE_NAMES.length; t++)
+      if(TYPE_NAMES[t].equalsIgnoreCase(f[0]))
+        type = t;
+    if(type < 0)
+      throw new Exception("unknown constraint \"" +f[0] +"\"");
+
+    int expected = (type == HEADCOUNT) ? 7 : 3;
+    if(f.length != expected)
+      throw new Exception(TYPE_NAMES[type] +" needs " +expected +" fields");
+    if(f[1].length() == 0)
+      throw new Exception("missing position");
+
+    Constraint c = new Constraint(type, f[1]);
+    if(type == HEADCOUNT) {
+      c.day = parseDay(f[2]);
+      c.fromSlot = TimeSlots.toSlot(parseTime(f[3]));
+      c.toSlot = TimeSlots.toSlot(parseTime(f[4]));
+      if(c.toSlot <= c.fromSlot)
+        c.toSlot += TimeSlots.SLOTS_PER_DAY;
+      c.min = parseCount(f[5]);
+      c.max = parseCount(f[6]);
+      if(c.min > c.max)
+        throw new Exception("min is greater than max");
+    }
+    else
+      c.value = parseCount(f[2]);
+
+    return c;
+  }
+
+
+
+  @Override
+  public String toString() {
+    String line = TYPE_NAMES[type] +", " +position +", ";
+    if(type != HEADCOUNT)
+      return line +value;
+
+    return line +(day == ANY_DAY ? "Any" : DAY_NAMES[day]) +", "
+           +TimeSlots.label(fromSlot) +", " +TimeSlots.label(toSlot)
+           +", " +min +", " +max;
+  }
+
+
+
+  public int getType() {
+    return type;
+  }
+
+  public String getPosition() {
+    return position;
+  }
+
+  public int getDay() {
+    return day;
+  }
+
+  public int getFromSlot() {
+    return fromSlot;
+  }
+
+  public int getToSlot() {
+    return toSlot;
+  }
+
+  public int getMin() {
+    return min;
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  public int getValue() {
+    return value;
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static int parseDay(String s) throws Exception {
+    if(s.equalsIgnoreCase("Any"))
+      return ANY_DAY;
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+      if(s.length() >= 3 && s.substring(0, 3).equalsIgnoreCase(DAY_NAMES[d]))
+        return d;
+    throw new Exception("unknown day \"" +s +"\"");
+  }
+
+
+
+  /**
+   * Parses times like "9:30AM" or "9:30 PM" into the 24-hour integer format
+   */
+  private static int parseTime(String s) throws Exception {
+    try {
+      return TimeSlots.parse(s.replace(" ", "").toUpperCase());
+    }
+    catch(Exception e) {
+      throw new Exception("bad time \"" +s +"\"");
+    }
+  }
+
+
+
+  private static int parseCount(String s) throws Exception {
+    try {
+      int n = Integer.parseInt(s);
+      if(n >= 0)
+        return n;
+    }
+    catch(NumberFormatException e) {
+      // Reported below
+    }
+    throw new Exception("bad number \"" +s +"\"");
+  }
+}
@@ -0,0 +1,354 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is the compiled form of a ConstraintSet for one roster. The
+ *    rules are turned into per-slot limits and per-employee limits, and the
+ *    checker keeps running counts of the current assignment so that checking
+ *    a candidate shift takes a few mask operations:
+ *
+ *      - for each position, a period mask of the slots already at their
+ *        maximum headcount; a shift fits if it doesn't overlap that mask
+ *      - for each employee, a mask of the days of the period they work; only
+ *        the run of consecutive days through the new shift's day is counted
+ *      - the rest is measured to the nearest shifts before and after the new
+ *        one, across any days off, and only as far as the rest could be
+ *        short
+ *
+ *    Like the Scheduler, the checker sees the period as one timeline that
+ *    wraps from its last day back to its first, so a shift past midnight
+ *    counts towards the next day's slots, and runs of days and rest carry
+ *    over the period's end.
+ *
+ *    Headcount rules are per weekday and apply to that weekday in every week
+ *    of the period. The StaffingDemand is folded into the minimum headcounts
+ *    the same way, so the scheduler works towards it as it does towards
+ *    headcount rules.
+ *
+ *    Index numPositions stands for "*", i.e. every employee.
+ *
+ *    The compiled limits never change once built, so copies made for
+ *    schedulers running on other threads share them and only get counts of
+ *    their own.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class ConstraintChecker {
+  private static final int NUM_CELLS = TimeSlots.PERIOD_SLOTS;
+
+  private int numPositions,
+              all;
+
+  // Per position (plus "*"), per day*SLOTS_PER_DAY + slot of the period
+  private int[][] minCount,
+                  maxCount,
+                  count;
+
+  // Per position (plus "*"), period mask of the slots at their maximum
+  // headcount
+  private long[][] fullMask;
+
+  // Per employee
+  private int[] empPos,
+                maxDays,
+                minRest,
+                workDays;
+
+  private Boolean hasMinimums;
+
+//==============================================================================
+  /**
+   * Use ConstraintSet::compile
+   */
+  ConstraintChecker(ArrayList<Constraint> constraints,
+                    ArrayList<Employee> emps, StaffingDemand demand) {
+    HashMap<String, Integer> posIds = new HashMap<String, Integer>();
+    empPos = new int[emps.size()];
+    for(int e = 0; e < emps.size(); e++) {
+      String pos = emps.get(e).getPosition();
+      if(!posIds.containsKey(pos))
+        posIds.put(pos, posIds.size());
+      empPos[e] = posIds.get(pos);
+    }
+
+    numPositions = posIds.size();
+    all = numPositions;
+    minCount = new int[numPositions+1][NUM_CELLS];
+    maxCount = new int[numPositions+1][NUM_CELLS];
+    count = new int[numPositions+1][NUM_CELLS];
+    fullMask = new long[numPositions+1][];
+    for(int p = 0; p <= numPositions; p++) {
+      java.util.Arrays.fill(maxCount[p], Integer.MAX_VALUE);
+      fullMask[p] = SlotMask.create(NUM_CELLS);
+    }
+
+    int[] posMaxDays = new int[numPositions+1];
+    int[] posMinRest = new int[numPositions+1];
+    java.util.Arrays.fill(posMaxDays, TimeSlots.NUM_DAYS);
+    hasMinimums = false;
+
+    Constraint c;
+    Integer p;
+    for(int i = 0; i < constraints.size(); i++) {
+      c = constraints.get(i);
+      if(c.getPosition().equals(Constraint.ANY_POSITION))
+        p = all;
+      else
+        p = posIds.get(c.getPosition());
+
+      // A rule for a position nobody holds has nothing to check
+      if(p == null)
+        continue;
+
+      if(c.getType() == Constraint.HEADCOUNT) {
+        for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+          if(c.getDay() != Constraint.ANY_DAY &&
+             c.getDay() != TimeSlots.weekday(d))
+            continue;
+          for(int r = c.getFromSlot(); r < c.getToSlot(); r++) {
+            int cell = Scheduler.cell(d, r);
+            minCount[p][cell] = Math.max(minCount[p][cell], c.getMin());
+            maxCount[p][cell] = Math.min(maxCount[p][cell], c.getMax());
+          }
+        }
+        if(c.getMin() > 0)
+          hasMinimums = true;
+      }
+      else if(c.getType() == Constraint.MAX_DAYS)
+        posMaxDays[p] = Math.min(posMaxDays[p], c.getValue());
+      else
+        posMinRest[p] = Math.max(posMinRest[p],
+                                 TimeSlots.slots(c.getValue()));
+    }
+
+    if(demand != null)
+      for(String pos : posIds.keySet()) {
+        int[] curve = demand.getCurve(pos);
+        if(curve == null)
+          continue;
+        p = posIds.get(pos);
+        int need;
+        for(int cell = 0; cell < NUM_CELLS; cell++) {
+          need = curve[cell % TimeSlots.WEEK_SLOTS];
+          if(need > 0) {
+            minCount[p][cell] = Math.max(minCount[p][cell], need);
+            hasMinimums = true;
+          }
+        }
+      }
+
+    maxDays = new int[emps.size()];
+    minRest = new int[emps.size()];
+    workDays = new int[emps.size()];
+    for(int e = 0; e < emps.size(); e++) {
+      maxDays[e] = Math.min(posMaxDays[empPos[e]], posMaxDays[all]);
+      minRest[e] = Math.max(posMinRest[empPos[e]], posMinRest[all]);
+    }
+
+    reset();
+  }
+
+
+
+  private ConstraintChecker(ConstraintChecker other) {
+    numPositions = other.numPositions;
+    all = other.all;
+    minCount = other.minCount;
+    maxCount = other.maxCount;
+    empPos = other.empPos;
+    maxDays = other.maxDays;
+    minRest = other.minRest;
+    hasMinimums = other.hasMinimums;
+
+    count = new int[numPositions+1][NUM_CELLS];
+    fullMask = new long[numPositions+1][];
+    for(int p = 0; p <= numPositions; p++)
+      fullMask[p] = SlotMask.create(NUM_CELLS);
+    workDays = new int[empPos.length];
+    reset();
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Forgets the current assignment
+   */
+  public void reset() {
+    for(int p = 0; p <= numPositions; p++) {
+      java.util.Arrays.fill(count[p], 0);
+      for(int cell = 0; cell < NUM_CELLS; cell++)
+        SlotMask.set(fullMask[p], cell, maxCount[p][cell] <= 0);
+    }
+    java.util.Arrays.fill(workDays, 0);
+  }
+
+
+
+  /**
+   * Returns a checker with the same limits and an empty assignment
+   */
+  public ConstraintChecker copy() {
+    return new ConstraintChecker(this);
+  }
+
+
+
+  /**
+   * Checks if employee e can be given the shift on day d, given the shifts
+   * already assigned in shiftStart/shiftLength
+   */
+  public Boolean canAssign(int e, int d, int start, int len,
+                           int[][] shiftStart, int[][] shiftLength) {
+    int first = Scheduler.cell(d, start);
+    if(SlotMask.window(fullMask[empPos[e]], NUM_CELLS, first, len) != 0 ||
+       SlotMask.window(fullMask[all], NUM_CELLS, first, len) != 0)
+      return false;
+
+    if(maxDays[e] < TimeSlots.NUM_DAYS &&
+       runThrough(workDays[e] | 1 << d, d) > maxDays[e])
+      return false;
+
+    if(minRest[e] > 0 &&
+       (restBefore(e, d, start, shiftStart, shiftLength) < minRest[e] ||
+        restAfter(e, d, start+len, shiftStart, shiftLength) < minRest[e]))
+      return false;
+
+    return true;
+  }
+
+
+
+  /**
+   * Records that employee e works the shift on day d
+   */
+  public void assign(int e, int d, int start, int len) {
+    change(empPos[e], d, start, len, 1);
+    change(all, d, start, len, 1);
+    workDays[e] |= 1 << d;
+  }
+
+
+
+  /**
+   * Records that employee e no longer works the shift on day d
+   */
+  public void unassign(int e, int d, int start, int len) {
+    change(empPos[e], d, start, len, -1);
+    change(all, d, start, len, -1);
+    workDays[e] &= ~(1 << d);
+  }
+
+
+
+  /**
+   * Returns how much employee e working the shift on day d would reduce the
+   * deficit: one for each slot below the minimum headcount for e's position,
+   * and one for each slot below the minimum headcount for everyone
+   */
+  public int shortfall(int e, int d, int start, int len) {
+    if(!hasMinimums)
+      return 0;
+
+    int p = empPos[e];
+    int cell, n = 0;
+    for(int r = start; r < start+len; r++) {
+      cell = Scheduler.cell(d, r);
+      if(count[p][cell] < minCount[p][cell])
+        n++;
+      if(count[all][cell] < minCount[all][cell])
+        n++;
+    }
+    return n;
+  }
+
+
+
+  /**
+   * Returns the total number of missing employees over every slot with a
+   * minimum headcount
+   */
+  public int deficit() {
+    if(!hasMinimums)
+      return 0;
+
+    int n = 0;
+    for(int p = 0; p <= numPositions; p++)
+      for(int cell = 0; cell < NUM_CELLS; cell++)
+        n += Math.max(0, minCount[p][cell] - count[p][cell]);
+    return n;
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private void change(int p, int d, int start, int len, int delta) {
+    int cell;
+    for(int r = start; r < start+len; r++) {
+      cell = Scheduler.cell(d, r);
+      count[p][cell] += delta;
+      SlotMask.set(fullMask[p], cell, count[p][cell] >= maxCount[p][cell]);
+    }
+  }
+
+
+
+  /**
+   * Returns the slots between the end of e's last shift before day d and
+   * slot start of day d, or Integer.MAX_VALUE if there is none near enough to
+   * be short of minRest[e]. A shift ends less than two days after the start
+   * of its own day, so one k days back leaves at least k-2 days of rest
+   */
+  private int restBefore(int e, int d, int start, int[][] shiftStart,
+                         int[][] shiftLength) {
+    int n = TimeSlots.NUM_DAYS;
+    int p;
+    for(int k = 1; k < n && (k-2)*TimeSlots.SLOTS_PER_DAY < minRest[e]; k++) {
+      p = (d + n-k) % n;
+      if(shiftLength[e][p] != 0)
+        return k*TimeSlots.SLOTS_PER_DAY + start
+               - (shiftStart[e][p] + shiftLength[e][p]);
+    }
+    return Integer.MAX_VALUE;
+  }
+
+
+
+  /**
+   * Returns the slots between slot end of day d, where a shift of e's ends,
+   * and the start of e's next shift after day d, or Integer.MAX_VALUE if
+   * there is none near enough to be short of minRest[e]
+   */
+  private int restAfter(int e, int d, int end, int[][] shiftStart,
+                        int[][] shiftLength) {
+    int n = TimeSlots.NUM_DAYS;
+    int p;
+    for(int k = 1; k < n && (k-2)*TimeSlots.SLOTS_PER_DAY < minRest[e]; k++) {
+      p = (d+k) % n;
+      if(shiftLength[e][p] != 0)
+        return k*TimeSlots.SLOTS_PER_DAY + shiftStart[e][p] - end;
+    }
+    return Integer.MAX_VALUE;
+  }
+
+
+
+  /**
+   * Returns the length of the run of consecutive days in the day mask that
+   * goes through day d, where the last day of the period is followed by the
+   * first
+   */
+  private static int runThrough(int days, int d) {
+    int n = TimeSlots.NUM_DAYS;
+    int run = 1;
+    while(run < n && (days >>> (d+run) % n & 1) != 0)
+      run++;
+    for(int back = 1; run < n && (days >>> (d+n-back) % n & 1) != 0; back++)
+      run++;
+    return run;
+  }
+}
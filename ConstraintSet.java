@@ -0,0 +1,124 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class holds the business's scheduling constraints and stores them in
+ *    the constraints file, one constraint per line in the format described in
+ *    the Constraint class. Lines starting with '#' are comments. The text a
+ *    set was parsed from is kept and saved as it is, so the comments and
+ *    blank lines the user wrote survive editing the constraints.
+ *
+ *    Before scheduling, the constraints are compiled against the roster into
+ *    a ConstraintChecker.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+public class ConstraintSet {
+  public static final String FILE_NAME = "constraints.dat";
+
+  private ArrayList<Constraint> constraints;
+
+  // The text the constraints were parsed from, comments included
+  private String text;
+
+//==============================================================================
+  public ConstraintSet() {
+    constraints = new ArrayList<Constraint>();
+    text = "";
+  }
+
+
+
+  /**
+   * Parses every line of the text. Throws an Exception naming the first line
+   * that is not a valid constraint
+   */
+  public static ConstraintSet parse(String text) throws Exception {
+    ConstraintSet set = new ConstraintSet();
+    Scanner lines = new Scanner(text);
+    String line;
+    int lineNum = 0;
+
+    while(lines.hasNextLine()) {
+      line = lines.nextLine().trim();
+      lineNum++;
+      if(line.length() == 0 || line.startsWith("#"))
+        continue;
+      try {
+        set.constraints.add(Constraint.parse(line));
+      }
+      catch(Exception e) {
+        lines.close();
+        throw new Exception("line " +lineNum +": " +e.getMessage());
+      }
+    }
+
+    lines.close();
+    set.text = text;
+    return set;
+  }
+
+
+
+  /**
+   * Reads the constraints file
+   */
+  public static ConstraintSet load(File file) throws Exception {
+    return parse(new String(java.nio.file.Files.readAllBytes(file.toPath()),
+                            "UTF-8"));
+  }
+
+
+
+  /**
+   * Writes the constraints file from the text the constraints were parsed
+   * from
+   */
+  public void save(File file) throws Exception {
+    FileWriter fw = new FileWriter(file);
+    PrintWriter writer = new PrintWriter(new BufferedWriter(fw));
+    writer.print(text);
+    writer.close();
+  }
+
+
+
+  /**
+   * Compiles the constraints for the employees, in the order the scheduler
+   * will refer to them, along with the staffing demand if it isn't null
+   */
+  public ConstraintChecker compile(ArrayList<Employee> emps,
+                                   StaffingDemand demand) {
+    return new ConstraintChecker(constraints, emps, demand);
+  }
+
+
+
+  public int size() {
+    return constraints.size();
+  }
+
+  public Constraint get(int i) {
+    return constraints.get(i);
+  }
+
+  public String getText() {
+    return text;
+  }
+
+
+
+  @Override
+  public String toString() {
+    String text = "";
+    for(int i = 0; i < constraints.size(); i++)
+      text += constraints.get(i) +"\n";
+    return text;
+  }
+}
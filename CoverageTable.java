@@ -0,0 +1,143 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class compares the shifts assigned to the employees with the
+ *    StaffingDemand. For each position and day it keeps prefix sums of the
+ *    staffed count, the required count, and the shortfall (how many employees
+ *    are missing) per slot, so the totals over any range of slots are a
+ *    subtraction:
+ *
+ *      sum over slots [from, to) = prefix[to] - prefix[from]
+ *
+ *    A shift that runs past midnight counts towards the next day's slots, and
+ *    one on the last day of the period runs into the first day's. The demand
+ *    is weekly and is compared with every week of the period.
+ *
+ *    The table is a copy taken when it is built; build a new one after the
+ *    shifts or the demand change.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class CoverageTable {
+  private static final int ROW_SIZE = TimeSlots.SLOTS_PER_DAY+1;
+
+  private HashMap<String, Integer> posIds;
+
+  // Per position, per day*ROW_SIZE + slot: the sum over the slots before it
+  private int[][] staffedSum,
+                  requiredSum,
+                  shortSum;
+
+//==============================================================================
+  public CoverageTable(ArrayList<Employee> emps, StaffingDemand demand) {
+    posIds = new HashMap<String, Integer>();
+    for(int e = 0; e < emps.size(); e++)
+      posId(emps.get(e).getPosition());
+    ArrayList<String> demanded = demand.getPositions();
+    for(int i = 0; i < demanded.size(); i++)
+      posId(demanded.get(i));
+
+    int numPos = posIds.size();
+    int[][] staffed = new int[numPos][TimeSlots.PERIOD_SLOTS+1];
+
+    // Each shift adds one at its start and takes one away at its end, so
+    // a running total over the period gives the number working each slot. A
+    // shift past the end of the period is split into its two parts
+    Employee emp;
+    int p, start, end;
+    for(int e = 0; e < emps.size(); e++) {
+      emp = emps.get(e);
+      p = posIds.get(emp.getPosition());
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+        if(emp.getShiftLength(d) != 0) {
+          start = d*TimeSlots.SLOTS_PER_DAY + emp.getShiftStart(d);
+          end = start + emp.getShiftLength(d);
+          staffed[p][start]++;
+          if(end <= TimeSlots.PERIOD_SLOTS)
+            staffed[p][end]--;
+          else {
+            staffed[p][TimeSlots.PERIOD_SLOTS]--;
+            staffed[p][0]++;
+            staffed[p][end - TimeSlots.PERIOD_SLOTS]--;
+          }
+        }
+    }
+
+    staffedSum = new int[numPos][TimeSlots.NUM_DAYS*ROW_SIZE];
+    requiredSum = new int[numPos][TimeSlots.NUM_DAYS*ROW_SIZE];
+    shortSum = new int[numPos][TimeSlots.NUM_DAYS*ROW_SIZE];
+    int[] curve;
+    int working, need, base;
+    for(String pos : posIds.keySet()) {
+      p = posIds.get(pos);
+      curve = demand.getCurve(pos);
+      working = 0;
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+        base = d*ROW_SIZE;
+        for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++) {
+          working += staffed[p][d*TimeSlots.SLOTS_PER_DAY + r];
+          need = (curve == null) ? 0
+                 : curve[TimeSlots.weekday(d)*TimeSlots.SLOTS_PER_DAY + r];
+          staffedSum[p][base + r+1] = staffedSum[p][base + r] + working;
+          requiredSum[p][base + r+1] = requiredSum[p][base + r] + need;
+          shortSum[p][base + r+1] = shortSum[p][base + r]
+                                    + Math.max(0, need-working);
+        }
+      }
+    }
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Returns the number of employees of the position working, summed over the
+   * slots from (inclusive) to (exclusive) on day d of the period
+   */
+  public int staffed(String pos, int d, int from, int to) {
+    return range(staffedSum, pos, d, from, to);
+  }
+
+
+
+  /**
+   * Returns the number of employees of the position required, summed over the
+   * slots from (inclusive) to (exclusive) on day d of the period
+   */
+  public int required(String pos, int d, int from, int to) {
+    return range(requiredSum, pos, d, from, to);
+  }
+
+
+
+  /**
+   * Returns the number of employees of the position missing, summed over the
+   * slots from (inclusive) to (exclusive) on day d of the period. Extra employees in one
+   * slot don't make up for missing ones in another
+   */
+  public int shortfall(String pos, int d, int from, int to) {
+    return range(shortSum, pos, d, from, to);
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private int range(int[][] sums, String pos, int d, int from, int to) {
+    Integer p = posIds.get(pos);
+    if(p == null)
+      return 0;
+    return sums[p][d*ROW_SIZE + to] - sums[p][d*ROW_SIZE + from];
+  }
+
+
+
+  private void posId(String pos) {
+    if(!posIds.containsKey(pos))
+      posIds.put(pos, posIds.size());
+  }
+}
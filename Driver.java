@@ -3,16 +3,110 @@
  * 
  * Description:
  *    This class starts the graphic user interface which handles everything.
+ *    While the employees are being loaded in the background, a small splash
+ *    window with a progress bar is shown instead. Once the main window is up,
+ *    the exporter is warmed up in the background for the first export.
+ *    Settings that were not supported (see TimeSlots) are shown in a pop-up.
  */
 
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JWindow;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 public class Driver {
   public static void main(String[] args) {
-    GUI frame = new GUI();
-    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    frame.pack();
-    frame.setResizable(false);
-    frame.setVisible(true);
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        load();
+      }
+    });
   }
-}
\ No newline at end of file
+  
+  
+  
+  /**
+   * Shows the splash window and loads the ScheduleMaker off the Event Dispatch
+   * Thread, then replaces the splash window with the main window
+   */
+  private static void load() {
+    final JWindow splash = new JWindow();
+    final JProgressBar bar = new JProgressBar(0, 100);
+    bar.setIndeterminate(true);
+    bar.setBackground(Color.WHITE);
+    
+    JPanel panel = new JPanel();
+    panel.setBackground(Color.WHITE);
+    panel.setBorder(GUI.PANEL_BORDER);
+    panel.setLayout(new BorderLayout(10, 10));
+    panel.setPreferredSize(new Dimension(300, 70));
+    panel.add(new JLabel("Loading ScheduleMe...", JLabel.CENTER),
+              BorderLayout.CENTER);
+    panel.add(bar, BorderLayout.SOUTH);
+    
+    splash.getContentPane().add(panel);
+    splash.pack();
+    splash.setLocationRelativeTo(null);
+    splash.setVisible(true);
+    
+    new SwingWorker<ScheduleMaker, Integer>() {
+      @Override
+      protected ScheduleMaker doInBackground() throws Exception {
+        return new ScheduleMaker(new ProgressListener() {
+          @Override
+          public void progress(int done, int total) {
+            publish(done*100/total);
+          }
+        });
+      }
+      
+      @Override
+      protected void process(List<Integer> percents) {
+        bar.setIndeterminate(false);
+        bar.setValue(percents.get(percents.size()-1));
+      }
+      
+      @Override
+      protected void done() {
+        splash.dispose();
+        
+        ScheduleMaker sm;
+        try {
+          sm = get();
+        }
+        catch(InterruptedException | ExecutionException e) {
+          GUI.msgPopup("CRITICAL ERROR! Program has terminated. "
+                       +"See err output.");
+          System.err.println("@Driver/load : " +(e.getCause() != null ?
+                                                 e.getCause() : e));
+          System.exit(1);
+          return;
+        }
+        
+        GUI frame = new GUI(sm);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.pack();
+        frame.setResizable(false);
+        frame.setVisible(true);
+        
+        if(TimeSlots.settingWarnings().size() > 0) {
+          String msg = "Some settings are not supported and the defaults are"
+                       +" used:";
+          for(int i = 0; i < TimeSlots.settingWarnings().size(); i++)
+            msg += "\n" +TimeSlots.settingWarnings().get(i);
+          GUI.msgPopup(msg);
+        }
+        ScheduleMaker.warmExporter();
+      }
+    }.execute();
+  }
+}
@@ -19,7 +19,16 @@ public class Employee {
   private int minHours,
               maxHours;
   
-  private byte[][] availCodes;
+  // Availability packed into one weekly slot mask per availability type.
+  // Slot r of weekday d is slot d*SLOTS_PER_DAY + r of the mask. A slot set
+  // in neither mask is unavailable
+  private long[] prfMask,
+                 altMask;
+  
+  // The assigned shift for each day of the period: the starting slot and the
+  // length in slots. A length of 0 means the employee is not working that day
+  private int[] shiftStart,
+                shiftLength;
   
 //==============================================================================
   /**
@@ -41,10 +50,11 @@ public class Employee {
     lastSubmission = "Never";
     comment = "None";
     
-    availCodes = new byte[ScheduleMaker.NUM_ROWS][7];
-    for(int r = 0; r < ScheduleMaker.NUM_ROWS; r++)
-      for(int d = 0; d < 7; d++)
-        availCodes[r][d] = ScheduleMaker.UNA;
+    prfMask = SlotMask.week();
+    altMask = SlotMask.week();
+    
+    shiftStart = new int[TimeSlots.NUM_DAYS];
+    shiftLength = new int[TimeSlots.NUM_DAYS];
   }
   
   
@@ -54,11 +64,27 @@ public class Employee {
    */
   public Employee(String name, String position, String phone, int min, int max,
                   String lastSubmission, String comment, byte[][] availCodes) {
-    Scanner nameScan = new Scanner(name.substring(0, name.length()-4));
-    nameScan.useDelimiter("_");
-    String first = nameScan.next();
-    String last = nameScan.next();
-    nameScan.close();
+    this(name, position, phone, min, max, lastSubmission, comment,
+         SlotMask.week(), SlotMask.week());
+    packCodes(availCodes);
+  }
+  
+  
+  
+  /**
+   * Constructor used to create an employee from the roster file or a parsed
+   * employee file, where the availability is already packed into weekly
+   * masks at the current slot length
+   */
+  public Employee(String name, String position, String phone, int min, int max,
+                  String lastSubmission, String comment, long[] prf,
+                  long[] alt) {
+    int split = name.indexOf('_');
+    int lastEnd = name.indexOf('_', split+1);
+    if(lastEnd < 0)
+      lastEnd = name.length()-4;
+    String first = name.substring(0, split);
+    String last = name.substring(split+1, lastEnd);
     
     nameFile = name;
     nameFull = first +" " +last;
@@ -69,7 +95,10 @@ public class Employee {
     maxHours = max;
     this.lastSubmission = lastSubmission;
     this.comment = comment;
-    this.availCodes = availCodes;
+    prfMask = prf;
+    altMask = alt;
+    shiftStart = new int[TimeSlots.NUM_DAYS];
+    shiftLength = new int[TimeSlots.NUM_DAYS];
   }
   
   
@@ -108,24 +137,87 @@ public class Employee {
   }
   
   public String getAssignedHours(int day) {
-    return "xx:xx-xx:xx";
+    return TimeSlots.shiftLabel(shiftStart[day], shiftLength[day]);
+  }
+  
+  public int getShiftStart(int day) {
+    return shiftStart[day];
+  }
+  
+  public int getShiftLength(int day) {
+    return shiftLength[day];
+  }
+  
+  public void setShifts(int[] start, int[] length) {
+    shiftStart = start.clone();
+    shiftLength = length.clone();
   }
   
   public String fileData() {
     String buffer = position +"\n" +phone +"\n" +minHours +"\n" +maxHours +"\n"
                     +lastSubmission +"\n" +comment +"\n";
     
-    for(int r = 0; r < ScheduleMaker.NUM_ROWS; r++) {
-      for(int d = 0; d < 7; d++)
-        buffer += availCodes[r][d];
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++) {
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+        buffer += avail(r, d);
       buffer += "\n";
     }
     
     return buffer;
   }
   
+  /**
+   * Returns the availability code of slot r on weekday d
+   */
   public int avail(int r, int d) {
-    return availCodes[r][d];
+    int i = d*TimeSlots.SLOTS_PER_DAY + r;
+    if(SlotMask.get(prfMask, i))
+      return ScheduleMaker.PRF;
+    if(SlotMask.get(altMask, i))
+      return ScheduleMaker.ALT;
+    return ScheduleMaker.UNA;
+  }
+  
+  /**
+   * Returns the weekly mask of the slots that have the availability type. The
+   * PRF and ALT masks are shared and must not be modified
+   */
+  public long[] availMask(int type) {
+    if(type == ScheduleMaker.PRF)
+      return prfMask;
+    if(type == ScheduleMaker.ALT)
+      return altMask;
+    
+    long[] una = SlotMask.week();
+    for(int w = 0; w < una.length; w++)
+      una[w] = ~(prfMask[w] | altMask[w])
+               & SlotMask.wordBits(w, TimeSlots.WEEK_SLOTS);
+    return una;
+  }
+  
+  /**
+   * Checks if every slot from (inclusive) to (exclusive) on weekday d has the
+   * availability type
+   */
+  public Boolean isAvailable(int type, int d, int from, int to) {
+    int base = d*TimeSlots.SLOTS_PER_DAY;
+    int len;
+    long prf, alt, window;
+    
+    // A day can be longer than a mask word, so it is checked a word at a time
+    for(int r = from; r < to; r += 64) {
+      len = Math.min(64, to-r);
+      window = Scheduler.rangeMask(0, len);
+      prf = SlotMask.window(prfMask, TimeSlots.WEEK_SLOTS, base+r, len);
+      alt = SlotMask.window(altMask, TimeSlots.WEEK_SLOTS, base+r, len);
+      if(type == ScheduleMaker.PRF && prf != window)
+        return false;
+      if(type == ScheduleMaker.ALT && (alt & ~prf) != window)
+        return false;
+      if(type == ScheduleMaker.UNA && (prf | alt) != 0)
+        return false;
+    }
+    return true;
   }
   
   public void edit(String position, String phone) {
@@ -135,11 +227,48 @@ public class Employee {
       this.phone = phone;
   }
   
-  public void edit(int min, int max, String comm, String lastSub, byte[][] c) {
+  public void edit(int min, int max, String comm, String lastSub,
+                   long[] prf, long[] alt) {
     minHours = min;
     maxHours = max;
     comment = comm;
     lastSubmission = lastSub;
-    availCodes = c;
+    prfMask = prf.clone();
+    altMask = alt.clone();
+  }
+  
+  /**
+   * Converts weekly PRF and ALT masks with srcPerDay slots a day to the
+   * current slot length and returns them as {prf, alt}. When a new slot
+   * covers several old ones, it is only available if all of them are, and
+   * only PRF if all of them are PRF
+   */
+  public static long[][] convertAvail(long[] prf, long[] alt, int srcPerDay) {
+    if(srcPerDay == TimeSlots.SLOTS_PER_DAY)
+      return new long[][] {prf, alt};
+    
+    long[] any = new long[prf.length];
+    for(int w = 0; w < any.length; w++)
+      any[w] = prf[w] | alt[w];
+    
+    long[] newPrf = SlotMask.resample(prf, srcPerDay, true);
+    long[] newAlt = SlotMask.resample(any, srcPerDay, true);
+    for(int w = 0; w < newAlt.length; w++)
+      newAlt[w] &= ~newPrf[w];
+    return new long[][] {newPrf, newAlt};
+  }
+  
+  /**
+   * Packs a SLOTS_PER_DAY x 7 array of availability codes into the weekly
+   * masks
+   */
+  private void packCodes(byte[][] codes) {
+    int i;
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+      for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++) {
+        i = d*TimeSlots.SLOTS_PER_DAY + r;
+        SlotMask.set(prfMask, i, codes[r][d] == ScheduleMaker.PRF);
+        SlotMask.set(altMask, i, codes[r][d] == ScheduleMaker.ALT);
+      }
   }
 }
\ No newline at end of file
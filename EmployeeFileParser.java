@@ -0,0 +1,229 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class reads the old one-file-per-employee layout written by
+ *    Employee::fileData. Each file is read whole into a buffer that is reused
+ *    from file to file, and the availability rows are decoded straight from
+ *    the bytes into the PRF/ALT weekly masks.
+ *
+ *    There is one availability row per slot of the day. Older files have 48
+ *    rows of half-hour slots; files with another number of rows were written
+ *    with another slot length. Either way the availability is converted to
+ *    the current slot length.
+ *
+ *    A file that doesn't follow the layout raises a MalformedFileException
+ *    naming the file and line, so the caller can skip that one file instead of
+ *    giving up on the whole directory.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class EmployeeFileParser {
+  /**
+   * Thrown when an employee file doesn't follow the expected layout
+   */
+  public static class MalformedFileException extends IOException {
+    // Default serial version
+    private static final long serialVersionUID = 1L;
+
+    public MalformedFileException(String file, int line, String msg) {
+      super(file +" line " +line +": " +msg);
+    }
+  }
+
+  private byte[] buffer;
+  private int    pos,
+                 end,
+                 line,
+                 lineStart,
+                 lineEnd;
+  private String fileName;
+
+//==============================================================================
+  public EmployeeFileParser() {
+    buffer = new byte[4096];
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Reads one employee file
+   */
+  public Employee parse(File f) throws IOException {
+    fileName = f.getName();
+    if(!fileName.endsWith(".dat") || fileName.indexOf('_') <= 0
+       || fileName.indexOf('_') >= fileName.length()-5)
+      throw new MalformedFileException(fileName, 0,
+                                       "name is not First_Last.dat");
+
+    Metrics.Span span = Metrics.start("load.parseFile",
+                                      new FileParseEvent(fileName));
+    try {
+      return read(f);
+    }
+    finally {
+      span.stop();
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Reads the employee from the file, whose name has been checked
+   */
+  private Employee read(File f) throws IOException {
+    readFile(f);
+    pos = 0;
+    line = 0;
+
+    String position = nextString();
+    String phone = nextString();
+    int min = nextInt();
+    int max = nextInt();
+    String lastSubmission = nextString();
+    String comment = nextString();
+
+    int rows = remainingLines();
+    if(rows == 0 || 24*60 % rows != 0 ||
+       !TimeSlots.isSupported(TimeSlots.SLOT_MINUTES_PROPERTY, 24*60 / rows))
+      throw new MalformedFileException(fileName, line+1,
+                                       rows +" availability rows is not a"
+                                       +" supported slot length");
+
+    long[] prf = SlotMask.create(TimeSlots.WEEK_DAYS*rows);
+    long[] alt = SlotMask.create(TimeSlots.WEEK_DAYS*rows);
+    byte c;
+    for(int r = 0; r < rows; r++) {
+      nextLine();
+      if(lineEnd-lineStart < TimeSlots.WEEK_DAYS)
+        throw new MalformedFileException(fileName, line,
+                                         "expected 7 availability codes");
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        c = buffer[lineStart + d];
+        if(c == '0' + ScheduleMaker.PRF)
+          SlotMask.set(prf, d*rows + r, true);
+        else if(c == '0' + ScheduleMaker.ALT)
+          SlotMask.set(alt, d*rows + r, true);
+        else if(c != '0' + ScheduleMaker.UNA)
+          throw new MalformedFileException(fileName, line,
+                                           "bad availability code '"
+                                           +(char)c +"'");
+      }
+    }
+
+    long[][] masks = Employee.convertAvail(prf, alt, rows);
+    return new Employee(fileName, position, phone, min, max, lastSubmission,
+                        comment, masks[0], masks[1]);
+  }
+
+
+
+  /**
+   * Reads the whole file into the buffer, growing it if needed
+   */
+  private void readFile(File f) throws IOException {
+    FileInputStream in = new FileInputStream(f);
+    try {
+      end = 0;
+      int n;
+      while(true) {
+        if(end == buffer.length) {
+          byte[] bigger = new byte[buffer.length*2];
+          System.arraycopy(buffer, 0, bigger, 0, end);
+          buffer = bigger;
+        }
+        n = in.read(buffer, end, buffer.length-end);
+        if(n < 0)
+          break;
+        end += n;
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+
+
+  /**
+   * Moves to the next line, setting lineStart and lineEnd around its contents
+   * without the line terminator
+   */
+  private void nextLine() throws MalformedFileException {
+    line++;
+    if(pos >= end)
+      throw new MalformedFileException(fileName, line, "unexpected end of file");
+
+    lineStart = pos;
+    while(pos < end && buffer[pos] != '\n')
+      pos++;
+    lineEnd = pos;
+    if(lineEnd > lineStart && buffer[lineEnd-1] == '\r')
+      lineEnd--;
+    pos++;
+  }
+
+
+
+  /**
+   * Counts the lines left in the file, not counting blank ones at the end
+   */
+  private int remainingLines() {
+    int last = end;
+    while(last > pos && (buffer[last-1] == '\n' || buffer[last-1] == '\r'))
+      last--;
+    if(last <= pos)
+      return 0;
+
+    int n = 1;
+    for(int i = pos; i < last; i++)
+      if(buffer[i] == '\n')
+        n++;
+    return n;
+  }
+
+
+
+  private String nextString() throws MalformedFileException {
+    nextLine();
+    return new String(buffer, lineStart, lineEnd-lineStart,
+                      StandardCharsets.UTF_8);
+  }
+
+
+
+  /**
+   * Reads a number, which must fit the 16-bit fields the requested hours are
+   * stored in
+   */
+  private int nextInt() throws MalformedFileException {
+    nextLine();
+    int i = lineStart;
+    Boolean negative = false;
+    if(i < lineEnd && buffer[i] == '-') {
+      negative = true;
+      i++;
+    }
+    if(i == lineEnd)
+      throw new MalformedFileException(fileName, line, "expected a number");
+
+    int value = 0;
+    for(; i < lineEnd; i++) {
+      if(buffer[i] < '0' || buffer[i] > '9')
+        throw new MalformedFileException(fileName, line, "expected a number");
+      value = value*10 + (buffer[i]-'0');
+      if(value > Short.MAX_VALUE)
+        throw new MalformedFileException(fileName, line,
+                                         "number out of range");
+    }
+    return negative ? -value : value;
+  }
+}
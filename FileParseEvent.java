@@ -0,0 +1,31 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is the Java Flight Recorder event of parsing one employee
+ *    file while migrating a store. A store can have many thousands of files,
+ *    so only those that take longer than the threshold are recorded by
+ *    default; the time of every file is still added up by Metrics under
+ *    "load.parseFile".
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("ScheduleMe.FileParse")
+@Label("Employee File Parse")
+@Category("ScheduleMe")
+@Description("Parsing one file of the old employees directory")
+@Threshold("1 ms")
+public class FileParseEvent extends jdk.jfr.Event {
+  @Label("File")
+  String file;
+
+//==============================================================================
+  FileParseEvent(String file) {
+    this.file = file;
+  }
+}
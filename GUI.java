@@ -7,19 +7,36 @@
  *    user-specified message, and houses the different GUI panels.
  */
 
+import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.KeyStroke;
+import javax.swing.SwingWorker;
 import javax.swing.border.Border;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.BorderLayout;
 import java.awt.GridBagLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GUI extends JFrame {
   // Default serial version
@@ -49,10 +66,15 @@ public class GUI extends JFrame {
                   busButton,
                   selectedButton;
   
+  // Shown while a schedule is being generated in the background
+  private JProgressBar  schProgress;
+  private JButton       cancelButton;
+  private AtomicBoolean schCancelled;
+  
 //==============================================================================
-  public GUI() {
+  public GUI(ScheduleMaker sm) {
     super("ScheduleMe");
-    sm = new ScheduleMaker();
+    this.sm = sm;
     setPreferredSize(FRAME_DIM);
     getContentPane().setLayout(new BorderLayout());
     getContentPane().add(setupOptionsPanel(), BorderLayout.WEST);
@@ -68,6 +90,27 @@ public class GUI extends JFrame {
       selectedButton = busButton;
       business();
     }
+    
+    // Hidden debug view of the operation timings
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+      KeyStroke.getKeyStroke(KeyEvent.VK_M, InputEvent.CTRL_DOWN_MASK
+                                            | InputEvent.SHIFT_DOWN_MASK),
+      "metrics");
+    getRootPane().getActionMap().put("metrics", new AbstractAction() {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        metrics();
+      }
+    });
+    
+    if(sm.getLoadWarnings().size() > 0) {
+      String msg = "Some files could not be read and were skipped:";
+      for(int i = 0; i < sm.getLoadWarnings().size(); i++)
+        msg += "\n" +sm.getLoadWarnings().get(i);
+      msgPopup(msg);
+    }
   }
   
   
@@ -141,15 +184,93 @@ public class GUI extends JFrame {
     getContentPane().revalidate();
   }
   
+  /**
+   * Generates and exports the schedule on a background thread. Only the
+   * "Generate schedule" button is disabled while it runs, so the employees
+   * can keep being edited; the job works on a copy of the data taken here
+   */
   private void generate() {
+    final ScheduleJob job = sm.newScheduleJob();
+    schCancelled = new AtomicBoolean(false);
+    schButton.setEnabled(false);
+    schProgress.setValue(0);
+    schProgress.setVisible(true);
+    cancelButton.setVisible(true);
+    getContentPane().revalidate();
+    
+    new SwingWorker<Void, Integer>() {
+      @Override
+      protected Void doInBackground() throws Exception {
+        job.run(new TaskMonitor() {
+          @Override
+          public void progress(int done, int total) {
+            publish(done*100/Math.max(total, 1));
+          }
+          
+          @Override
+          public Boolean isCancelled() {
+            return schCancelled.get();
+          }
+        });
+        return null;
+      }
+      
+      @Override
+      protected void process(List<Integer> percents) {
+        schProgress.setValue(percents.get(percents.size()-1));
+      }
+      
+      @Override
+      protected void done() {
+        schProgress.setVisible(false);
+        cancelButton.setVisible(false);
+        schButton.setEnabled(true);
+        getContentPane().revalidate();
+        
+        try {
+          get();
+        }
+        catch(ExecutionException e) {
+          if(e.getCause() instanceof CancellationException)
+            msgPopup("Schedule generation cancelled");
+          else
+            msgPopup("ERROR @ GUI/generate() : " +e.getCause());
+          return;
+        }
+        catch(InterruptedException e) {
+          msgPopup("ERROR @ GUI/generate() : " +e);
+          return;
+        }
+        
+        job.apply();
+        msgPopup("Excel file has been generated");
+      }
+    }.execute();
+  }
+  
+  /**
+   * Shows how long each operation has taken since the program started and
+   * saves the same numbers to the metrics file in the store, so they can be
+   * sent in without attaching a profiler
+   */
+  private void metrics() {
+    File f = new File(sm.getBaseDir(), Metrics.FILE_NAME);
+    String saved;
     try {
-      sm.export();
+      Metrics.write(f);
+      saved = "Saved to " +f.getAbsolutePath();
     }
     catch(Exception e) {
-      GUI.msgPopup("ERROR @ GUI/generate() : " +e);
-      return;
+      saved = "Could not save " +f +": " +e.getMessage();
     }
-    msgPopup("Excel file has been generated");
+    
+    JTextArea text = new JTextArea(Metrics.report() +"\n" +saved);
+    text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+    text.setEditable(false);
+    JScrollPane scroll = new JScrollPane(text);
+    scroll.setPreferredSize(new Dimension(780, 300));
+    JOptionPane.showMessageDialog(this, scroll, "Metrics",
+                                  JOptionPane.PLAIN_MESSAGE);
   }
   
   private void employee() {
@@ -175,6 +296,10 @@ public class GUI extends JFrame {
       JButton src = (JButton)e.getSource();
       String msg;
       
+      // Disabled buttons still get mouse events
+      if(!src.isEnabled())
+        return;
+      
       if(!sm.hoursFileExists() && !src.equals(busButton)) {
         msg = "Business hours have not been set. "
               +"Please set the business hours first by using the "
@@ -267,10 +392,30 @@ public class GUI extends JFrame {
     busButton.setBackground(Color.WHITE);
     busButton.addMouseListener(oListener);
     
+    schProgress = new JProgressBar(0, 100);
+    schProgress.setPreferredSize(buttonDim);
+    schProgress.setBackground(Color.WHITE);
+    schProgress.setStringPainted(true);
+    schProgress.setVisible(false);
+    cancelButton = new JButton("Cancel");
+    cancelButton.setBorder(buttBorder);
+    cancelButton.setPreferredSize(buttonDim);
+    cancelButton.setBackground(Color.WHITE);
+    cancelButton.setVisible(false);
+    cancelButton.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        if(schCancelled != null)
+          schCancelled.set(true);
+      }
+    });
+    
     panel.add(availButton);
     panel.add(schButton);
     panel.add(empButton);
     panel.add(busButton);
+    panel.add(schProgress);
+    panel.add(cancelButton);
     return panel;
   }
   
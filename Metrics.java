@@ -0,0 +1,198 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class keeps running totals of how long the program's operations
+ *    take, so the numbers can be read from a store's PC without attaching a
+ *    profiler. An operation is timed with a Span:
+ *
+ *      Metrics.Span span = Metrics.start("save.edit");
+ *      ...
+ *      span.stop();
+ *
+ *    which adds to the operation's number of calls, total time, and longest
+ *    time. stop(items) also counts what the operation handled (employees
+ *    loaded, search moves made) to give its rate. Only operations that finish
+ *    are counted.
+ *
+ *    Every span is also a Java Flight Recorder event, an OperationEvent unless
+ *    another event is given, so the same operations show up on the timeline
+ *    of a recording such as:
+ *
+ *      java -XX:StartFlightRecording=filename=rec.jfr Driver
+ *
+ *    The totals are kept in memory since the program started. report() lays
+ *    them out one operation per line, and write() saves that to a file; the
+ *    GUI does so on Ctrl+Shift+M and BatchDriver with -m. All of it is safe to
+ *    use from any thread.
+ */
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Metrics {
+  public static final String FILE_NAME = "metrics.txt";
+
+  private static final String COLUMNS = "%-20s %8s %12s %10s %10s %10s %12s\n";
+
+  // Operation name -> its totals
+  private static final ConcurrentHashMap<String, Stat> STATS =
+                                         new ConcurrentHashMap<String, Stat>();
+
+  private Metrics() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Starts timing an operation, recorded as an OperationEvent
+   */
+  public static Span start(String name) {
+    return new Span(name, new OperationEvent(name));
+  }
+
+
+
+  /**
+   * Starts timing an operation, recorded as the given event
+   */
+  public static Span start(String name, jdk.jfr.Event event) {
+    return new Span(name, event);
+  }
+
+
+
+  /**
+   * Adds one call of the operation that took nanos and handled items
+   */
+  public static void record(String name, long nanos, long items) {
+    Stat stat = STATS.get(name);
+    if(stat == null) {
+      STATS.putIfAbsent(name, new Stat());
+      stat = STATS.get(name);
+    }
+    stat.add(nanos, items);
+  }
+
+
+
+  /**
+   * Returns the totals of every operation so far, one per line sorted by
+   * name, with times in milliseconds
+   */
+  public static String report() {
+    ArrayList<String> names = new ArrayList<String>(STATS.keySet());
+    Collections.sort(names);
+
+    StringBuilder text = new StringBuilder();
+    text.append(String.format(COLUMNS, "operation", "calls", "total ms",
+                              "mean ms", "max ms", "items", "items/s"));
+    Stat stat;
+    long calls, nanos, items;
+    for(int i = 0; i < names.size(); i++) {
+      stat = STATS.get(names.get(i));
+      calls = stat.calls.sum();
+      nanos = stat.nanos.sum();
+      items = stat.items.sum();
+      text.append(String.format(COLUMNS, names.get(i), calls, millis(nanos),
+                                millis(nanos / Math.max(calls, 1)),
+                                millis(stat.max.get()),
+                                items == 0 ? "-" : Long.toString(items),
+                                rate(items, nanos)));
+    }
+    return text.toString();
+  }
+
+
+
+  /**
+   * Writes report() to the file
+   */
+  public static void write(File f) throws IOException {
+    FileWriter writer = new FileWriter(f);
+    try {
+      writer.write(report());
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static String millis(long nanos) {
+    return String.format("%.3f", nanos / 1e6);
+  }
+
+
+
+  /**
+   * Returns the items per second, or "-" if nothing was counted
+   */
+  private static String rate(long items, long nanos) {
+    if(items == 0 || nanos == 0)
+      return "-";
+    return Long.toString((long)(items / (nanos / 1e9)));
+  }
+
+
+
+  /**
+   * One operation being timed
+   */
+  public static final class Span {
+    private String        name;
+    private long          began;
+    private jdk.jfr.Event event;
+
+    private Span(String name, jdk.jfr.Event event) {
+      this.name = name;
+      this.event = event;
+      event.begin();
+      began = System.nanoTime();
+    }
+
+    public void stop() {
+      stop(0);
+    }
+
+    public void stop(long items) {
+      long nanos = System.nanoTime() - began;
+      if(event instanceof OperationEvent)
+        ((OperationEvent)event).items = items;
+      event.commit();
+      record(name, nanos, items);
+    }
+  }
+
+
+
+  /**
+   * Totals of one operation
+   */
+  private static final class Stat {
+    private LongAdder  calls = new LongAdder(),
+                       nanos = new LongAdder(),
+                       items = new LongAdder();
+    private AtomicLong max = new AtomicLong();
+
+    private void add(long n, long count) {
+      calls.increment();
+      nanos.add(n);
+      items.add(count);
+      long m = max.get();
+      while(n > m && !max.compareAndSet(m, n))
+        m = max.get();
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is the Java Flight Recorder event of one operation timed by
+ *    Metrics, such as loading the employees, saving an edit, or a phase of
+ *    the export. items is what the operation counts, if anything: employees
+ *    loaded, rows written, or search moves made, so a recording shows their
+ *    rate as well as the time taken.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ScheduleMe.Operation")
+@Label("Operation")
+@Category("ScheduleMe")
+@Description("An operation timed by Metrics")
+public class OperationEvent extends jdk.jfr.Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Items")
+  long items;
+
+//==============================================================================
+  OperationEvent(String operation) {
+    this.operation = operation;
+  }
+}
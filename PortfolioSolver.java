@@ -0,0 +1,167 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class runs several Schedulers at once, one per core, each searching
+ *    with its own seed over the same RosterSnapshot. They trade the best
+ *    assignment found so far through this class, and when the time budget
+ *    runs out (or every search has made its moves) the Scheduler with the
+ *    best score is returned.
+ *
+ *    Only the first Scheduler reports progress; all of them stop if the
+ *    monitor asks to cancel.
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PortfolioSolver {
+  private RosterSnapshot snap;
+  private int            numSolvers;
+  private long           millis,
+                         seed;
+
+  // Best assignment any Scheduler has offered so far
+  private long    bestScore;
+  private int[][] bestStart,
+                  bestLength;
+
+//==============================================================================
+  /**
+   * Runs numSolvers Schedulers over the snapshot for about millis
+   * milliseconds
+   */
+  public PortfolioSolver(RosterSnapshot snap, int numSolvers, long millis) {
+    this.snap = snap;
+    this.numSolvers = Math.max(1, numSolvers);
+    this.millis = millis;
+    seed = 1;
+    bestScore = Long.MIN_VALUE;
+    bestStart = new int[snap.numEmployees()][TimeSlots.NUM_DAYS];
+    bestLength = new int[snap.numEmployees()][TimeSlots.NUM_DAYS];
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Runs the Schedulers and returns the one with the best score. Throws a
+   * CancellationException if the monitor asks to cancel
+   */
+  public Scheduler run(final TaskMonitor monitor) throws Exception {
+    final long deadline = System.nanoTime() + millis*1000000L;
+    ArrayList<Future<Scheduler>> results = new ArrayList<Future<Scheduler>>();
+    ExecutorService pool = Executors.newFixedThreadPool(numSolvers);
+
+    try {
+      for(int i = 0; i < numSolvers; i++) {
+        final Scheduler scheduler = new Scheduler(snap);
+        final TaskMonitor solverMonitor = solverMonitor(monitor, i == 0);
+        scheduler.setSearch(Scheduler.defaultMoves(snap.numEmployees()),
+                            seed + i);
+        scheduler.joinPortfolio(this, deadline);
+
+        results.add(pool.submit(new Callable<Scheduler>() {
+          @Override
+          public Scheduler call() throws Exception {
+            scheduler.run(solverMonitor);
+            return scheduler;
+          }
+        }));
+      }
+
+      Scheduler best = null, s;
+      for(int i = 0; i < results.size(); i++) {
+        try {
+          s = results.get(i).get();
+        }
+        catch(ExecutionException e) {
+          if(e.getCause() instanceof Exception)
+            throw (Exception)e.getCause();
+          throw e;
+        }
+        if(best == null || s.score() > best.score())
+          best = s;
+      }
+      return best;
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+
+
+  /**
+   * Sets the seed of the first Scheduler; the others use the seeds after it
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+
+
+//==============================================================================
+//  Methods used by the Schedulers
+//==============================================================================
+  /**
+   * Keeps the assignment if it is the best so far
+   */
+  synchronized void offer(long score, int[][] start, int[][] length) {
+    if(score <= bestScore)
+      return;
+
+    bestScore = score;
+    for(int e = 0; e < start.length; e++) {
+      System.arraycopy(start[e], 0, bestStart[e], 0, TimeSlots.NUM_DAYS);
+      System.arraycopy(length[e], 0, bestLength[e], 0, TimeSlots.NUM_DAYS);
+    }
+  }
+
+
+
+  synchronized long bestScore() {
+    return bestScore;
+  }
+
+
+
+  /**
+   * Copies the best assignment so far and returns its score
+   */
+  synchronized long copyBest(int[][] start, int[][] length) {
+    for(int e = 0; e < start.length; e++) {
+      System.arraycopy(bestStart[e], 0, start[e], 0, TimeSlots.NUM_DAYS);
+      System.arraycopy(bestLength[e], 0, length[e], 0, TimeSlots.NUM_DAYS);
+    }
+    return bestScore;
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static TaskMonitor solverMonitor(final TaskMonitor monitor,
+                                           final Boolean reports) {
+    if(monitor == null)
+      return null;
+
+    return new TaskMonitor() {
+      @Override
+      public void progress(int done, int total) {
+        if(reports)
+          monitor.progress(done, total);
+      }
+
+      @Override
+      public Boolean isCancelled() {
+        return monitor.isCancelled();
+      }
+    };
+  }
+}
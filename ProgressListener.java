@@ -0,0 +1,16 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ * 
+ * Description:
+ *    This interface is implemented by anything that wants to follow the
+ *    progress of a long-running ScheduleMaker operation, such as the splash
+ *    window shown while the employees are loading.
+ */
+
+public interface ProgressListener {
+  /**
+   * Called with the amount of work done so far out of the total. May be
+   * called from any thread
+   */
+  public void progress(int done, int total);
+}
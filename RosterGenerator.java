@@ -0,0 +1,280 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class writes a synthetic store for load testing: business hours and
+ *    one file per employee in the "employees" directory, the layout the
+ *    program migrates from when it first loads a store. Startup, scheduling,
+ *    and export can then be tried at any size without typing the employees in
+ *    through the employee panel:
+ *
+ *      java RosterGenerator [-n employees] [-r seed] storeDir
+ *
+ *    -n sets the number of employees, from 0 to MAX_EMPLOYEES (default 30).
+ *    -r sets the seed (default 1); the same size and seed always give the
+ *    same store. The directory is created if needed, and a directory that
+ *    already holds a store is refused rather than overwritten.
+ *
+ *    Each employee gets a position, with more cashiers than managers, and
+ *    full- or part-time minimum and maximum hours. Their availability follows
+ *    one of a few shift patterns (openers, days, closers, late nights,
+ *    flexible), jittered per day, so it is clustered the way real
+ *    submissions are: a preferred block on most days, often with alternate
+ *    time around it, and now and then an alternate-only day.
+ *
+ *    No AWT or Swing class is loaded.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+public class RosterGenerator {
+  public static final int MAX_EMPLOYEES = 100000;
+
+  public static final long DEFAULT_SEED = 1;
+
+  private static final String[] POSITIONS = {"Cashier", "Cook", "Host",
+                                             "Manager"};
+  // Out of 100, per position
+  private static final int[] POSITION_WEIGHTS = {40, 30, 20, 10};
+
+  // Per shift pattern, the preferred block's start and length in hours
+  private static final int[][] PATTERNS = {{6, 8},    // opener
+                                           {9, 8},    // day
+                                           {15, 8},   // closer
+                                           {18, 7},   // late night
+                                           {7, 14}};  // flexible
+
+  // Business hours per weekday, Friday and Saturday open past midnight
+  private static final int[] OPEN = {700, 700, 700, 700, 700, 700, 900},
+                             CLOSE = {2200, 2200, 2200, 2200, 100, 100, 2000};
+
+  private static final String[] FIRST_NAMES = {
+    "Aaron", "Alice", "Andre", "Bella", "Brian", "Carla", "Chris", "Dana",
+    "David", "Elena", "Emily", "Felix", "Grace", "Hana", "Ivan", "Jamal",
+    "Jenny", "Kevin", "Laura", "Lucas", "Maria", "Mei", "Nadia", "Omar",
+    "Paula", "Quinn", "Rosa", "Sam", "Sofia", "Tariq", "Uma", "Victor",
+    "Wendy", "Xavier", "Yuki", "Zoe"};
+  private static final String[] LAST_NAMES = {
+    "Adams", "Baker", "Chen", "Diaz", "Evans", "Flores", "Garcia", "Hall",
+    "Ito", "Jones", "Kim", "Lopez", "Martin", "Nguyen", "Ortiz", "Park",
+    "Quintero", "Reyes", "Smith", "Tran", "Usman", "Vega", "Wong", "Young",
+    "Zhang"};
+
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    System.exit(run(args));
+  }
+
+
+
+  /**
+   * Generates the store given by the arguments and returns the exit code,
+   * BatchDriver.EXIT_OK or BatchDriver.EXIT_USAGE
+   */
+  public static int run(String[] args) {
+    long employees = 30,
+         seed = DEFAULT_SEED;
+    int first = 0;
+
+    while(first+1 < args.length && args[first].startsWith("-")) {
+      String value = args[first+1];
+      if(args[first].equals("-n")) {
+        employees = parseNumber(value);
+        if(employees < 0 || employees > MAX_EMPLOYEES) {
+          System.err.println("bad number of employees \"" +value +"\"");
+          return BatchDriver.EXIT_USAGE;
+        }
+      }
+      else if(args[first].equals("-r")) {
+        try {
+          seed = Long.parseLong(value.trim());
+        }
+        catch(NumberFormatException e) {
+          System.err.println("bad seed \"" +value +"\"");
+          return BatchDriver.EXIT_USAGE;
+        }
+      }
+      else
+        break;
+      first += 2;
+    }
+
+    if(first != args.length-1 || args[first].startsWith("-")) {
+      System.err.println("usage: java RosterGenerator [-n employees] [-r seed]"
+                         +" storeDir");
+      return BatchDriver.EXIT_USAGE;
+    }
+
+    try {
+      generate(new File(args[first]), (int)employees, seed);
+    }
+    catch(Exception e) {
+      System.err.println(args[first] +": " +e.getMessage());
+      return BatchDriver.EXIT_USAGE;
+    }
+    return BatchDriver.EXIT_OK;
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Writes a store of the number of employees into the directory
+   */
+  public static void generate(File dir, int employees, long seed)
+    throws Exception {
+
+    File empDir = new File(dir, ScheduleMaker.LEGACY_DIR);
+    if(new File(dir, ScheduleMaker.HOURS_FILE).exists() || empDir.exists()
+       || new File(dir, RosterStore.FILE_NAME).exists())
+      throw new Exception("already holds a store");
+    if(!empDir.mkdirs())
+      throw new IOException("can't create " +empDir);
+
+    writeHours(new File(dir, ScheduleMaker.HOURS_FILE));
+
+    Random rand = new Random(seed);
+    Employee emp;
+    for(int i = 0; i < employees; i++) {
+      emp = newEmployee(i, rand);
+      write(new File(empDir, emp.fileName()), emp.fileData());
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Makes the i-th employee. Names run through every pairing of the name
+   * lists before a number is added to the last name, so every file name is
+   * different
+   */
+  private static Employee newEmployee(int i, Random rand) {
+    int pairs = FIRST_NAMES.length*LAST_NAMES.length;
+    String last = LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+    if(i >= pairs)
+      last += i / pairs;
+    String name = FIRST_NAMES[i % FIRST_NAMES.length] +"_" +last +".dat";
+
+    int pick = rand.nextInt(100);
+    int p = 0;
+    while(pick >= POSITION_WEIGHTS[p]) {
+      pick -= POSITION_WEIGHTS[p];
+      p++;
+    }
+
+    Boolean fullTime = rand.nextInt(3) == 0;
+    int min = fullTime ? 30 + rand.nextInt(6) : 8 + rand.nextInt(12);
+    int max = min + (fullTime ? 5 : 4 + rand.nextInt(10));
+
+    long[][] masks = availability(rand, fullTime);
+    return new Employee(name, POSITIONS[p], phone(rand), min, max, "Never",
+                        "None", masks[0], masks[1]);
+  }
+
+
+
+  /**
+   * Returns the PRF and ALT masks of an employee following one of PATTERNS
+   * on their available days
+   */
+  private static long[][] availability(Random rand, Boolean fullTime) {
+    long[] prf = SlotMask.week();
+    long[] alt = SlotMask.week();
+    int[] pattern = PATTERNS[rand.nextInt(PATTERNS.length)];
+    int days = fullTime ? 5 + rand.nextInt(2) : 3 + rand.nextInt(3);
+
+    // Every day is available at first, then random days are dropped
+    Boolean[] avail = new Boolean[TimeSlots.WEEK_DAYS];
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+      avail[d] = true;
+    for(int left = TimeSlots.WEEK_DAYS; left > days; ) {
+      int d = rand.nextInt(TimeSlots.WEEK_DAYS);
+      if(avail[d]) {
+        avail[d] = false;
+        left--;
+      }
+    }
+
+    int hour = TimeSlots.SLOTS_PER_HOUR;
+    int start, len, from;
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      start = TimeSlots.slots(pattern[0]) + rand.nextInt(2*hour+1) - hour;
+      len = TimeSlots.slots(pattern[1]) + rand.nextInt(2*hour+1) - hour;
+      from = d*TimeSlots.SLOTS_PER_DAY + start;
+
+      if(avail[d]) {
+        SlotMask.setRange(prf, TimeSlots.WEEK_SLOTS, from, from+len);
+        if(rand.nextBoolean())
+          SlotMask.setRange(alt, TimeSlots.WEEK_SLOTS, from+len,
+                            from+len + TimeSlots.slots(1 + rand.nextInt(3)));
+        // Shifted by a week so it wraps back into Sunday from Monday
+        if(rand.nextInt(4) == 0)
+          SlotMask.setRange(alt, TimeSlots.WEEK_SLOTS,
+                            from + TimeSlots.WEEK_SLOTS
+                            - TimeSlots.slots(1 + rand.nextInt(2)),
+                            from + TimeSlots.WEEK_SLOTS);
+      }
+      else if(rand.nextInt(3) == 0)
+        SlotMask.setRange(alt, TimeSlots.WEEK_SLOTS, from, from+len);
+    }
+
+    // A slot is either preferred or alternate
+    for(int w = 0; w < alt.length; w++)
+      alt[w] &= ~prf[w];
+
+    long[][] masks = {prf, alt};
+    return masks;
+  }
+
+
+
+  private static String phone(Random rand) {
+    return (200 + rand.nextInt(800)) +"-" +(200 + rand.nextInt(800)) +"-"
+           +(1000 + rand.nextInt(9000));
+  }
+
+
+
+  private static void writeHours(File f) throws IOException {
+    PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(f)));
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      writer.print(OPEN[d] +"\n");
+      writer.print(CLOSE[d] +"\n");
+    }
+    writer.close();
+  }
+
+
+
+  private static void write(File f, String data) throws IOException {
+    FileWriter writer = new FileWriter(f);
+    try {
+      writer.write(data);
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+
+
+  /**
+   * Returns the number in the text, or -1 if it isn't a number
+   */
+  private static long parseNumber(String text) {
+    try {
+      return Long.parseLong(text.trim());
+    }
+    catch(NumberFormatException e) {
+      return -1;
+    }
+  }
+}
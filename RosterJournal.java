@@ -0,0 +1,447 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is an append-only journal in front of the roster file. Instead
+ *    of rewriting the roster on every save, each added, edited or removed
+ *    employee is appended to the journal as a small record. The roster file is
+ *    only rewritten by a background compaction once the journal grows large.
+ *
+ *    Records are buffered until commit(), which writes everything pending with
+ *    a single write and a single fsync, so removing many employees at once
+ *    costs one disk flush. Every record carries its length and a CRC32, so a
+ *    record torn by a crash is detected on startup and dropped instead of
+ *    corrupting the roster.
+ *
+ *    Journal files are numbered by generation: roster.<gen>.jnl. Compaction
+ *    switches appends to a new generation, writes the roster in the background
+ *    stamped with that generation, and then deletes the older journal files.
+ *    On startup the roster file is loaded and every journal file of its
+ *    generation or later is replayed in order.
+ *
+ *    A put record stores the slots per day its availability was written in,
+ *    followed by the words of the weekly masks, so records written with
+ *    another slot length are converted when they are replayed. Older put
+ *    records (OP_PUT_V1) hold one 48-slot long per day instead.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class RosterJournal {
+  private static final byte OP_PUT_V1 = 1,
+                            OP_REMOVE = 2,
+                            OP_PUT = 3;
+
+  // Journal size after which the roster file is rewritten
+  private static final int COMPACT_BYTES = 256*1024;
+
+  private RosterStore store;
+  private File        dir;
+
+  private long             generation;
+  private FileOutputStream journalOut;
+  private long             journalBytes;
+
+  // Records appended since the last commit
+  private ByteArrayOutputStream pending;
+  private DataOutputStream      pendingOut;
+
+  private ExecutorService compactor;
+  private Boolean         compacting;
+
+//==============================================================================
+  public RosterJournal(RosterStore store, File dir) {
+    this.store = store;
+    this.dir = dir;
+    pending = new ByteArrayOutputStream();
+    pendingOut = new DataOutputStream(pending);
+    compacting = false;
+
+    compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "roster-compactor");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Loads the roster file, replays the journal on top of it, and opens the
+   * journal for appending. Returns the resulting list of employees
+   */
+  public synchronized ArrayList<Employee> open() throws IOException {
+    ArrayList<Employee> empList = store.load();
+    generation = store.getGeneration();
+
+    HashMap<String, Integer> index = new HashMap<String, Integer>();
+    for(int i = 0; i < empList.size(); i++)
+      index.put(empList.get(i).fileName(), i);
+
+    long[] gens = journalGenerations();
+    long valid = 0;
+    File f = null;
+    for(int i = 0; i < gens.length; i++) {
+      f = journalFile(gens[i]);
+      if(gens[i] < generation) {
+        // Left over from a compaction that finished before a crash
+        f.delete();
+        continue;
+      }
+      valid = replay(f, empList, index);
+      generation = gens[i];
+    }
+    empList.removeAll(Collections.singleton(null));
+
+    // Anything past the last valid record is a torn write; cut it off so new
+    // records are not appended after garbage
+    if(f != null && f.exists() && valid < f.length()) {
+      RandomAccessFile raf = new RandomAccessFile(f, "rw");
+      raf.setLength(valid);
+      raf.close();
+    }
+
+    journalOut = new FileOutputStream(journalFile(generation), true);
+    journalBytes = journalFile(generation).length();
+    return empList;
+  }
+
+
+
+  /**
+   * Queues a record that adds the employee or replaces their data
+   */
+  public synchronized void put(Employee emp) throws IOException {
+    RosterStore.checkHours(emp);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(OP_PUT);
+    out.writeUTF(emp.fileName());
+    out.writeUTF(emp.getPosition());
+    out.writeUTF(emp.getPhone());
+    out.writeUTF(emp.getLastSub());
+    out.writeUTF(emp.getComment());
+    int[] req = emp.requestedHours();
+    out.writeShort(req[0]);
+    out.writeShort(req[1]);
+    long[] prf = emp.availMask(ScheduleMaker.PRF);
+    long[] alt = emp.availMask(ScheduleMaker.ALT);
+    out.writeShort(TimeSlots.SLOTS_PER_DAY);
+    for(int w = 0; w < prf.length; w++) {
+      out.writeLong(prf[w]);
+      out.writeLong(alt[w]);
+    }
+    out.close();
+    queue(bytes.toByteArray());
+  }
+
+
+
+  /**
+   * Queues a record that removes the employee
+   */
+  public synchronized void remove(Employee emp) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(OP_REMOVE);
+    out.writeUTF(emp.fileName());
+    out.close();
+    queue(bytes.toByteArray());
+  }
+
+
+
+  /**
+   * Makes every queued record durable with one write and one fsync
+   */
+  public synchronized void commit() throws IOException {
+    if(pending.size() > 0) {
+      journalOut.write(pending.toByteArray());
+      journalOut.getChannel().force(false);
+      journalBytes += pending.size();
+      pending.reset();
+    }
+  }
+
+
+
+  /**
+   * If the journal has grown past the compaction threshold, takes a snapshot
+   * of empList and rewrites the roster file in the background.
+   *
+   * This is not part of commit(): the snapshot replaces the journal files
+   * holding the committed records, so empList must already show them. The
+   * caller runs it once its list is updated.
+   *
+   * The records are already durable, so a compaction that can't start is
+   * reported and retried after the next change rather than thrown
+   */
+  public synchronized void maybeCompact(ArrayList<Employee> empList) {
+    if(journalBytes < COMPACT_BYTES || compacting)
+      return;
+
+    try {
+      compact(empList);
+    }
+    catch(Exception e) {
+      System.err.println("@RosterJournal/compact : " +e);
+    }
+  }
+
+
+
+  /**
+   * Discards records that were queued but not yet committed
+   */
+  public synchronized void rollback() {
+    pending.reset();
+  }
+
+
+
+  /**
+   * Switches to a new journal generation and folds everything before it into
+   * the roster file on the background thread. If the new journal file can't
+   * be opened, appends carry on in the current one
+   */
+  private void compact(ArrayList<Employee> empList) throws IOException {
+    final long newGen = generation + 1;
+    final byte[] snapshot = store.encode(empList, newGen);
+    FileOutputStream newOut = new FileOutputStream(journalFile(newGen), true);
+
+    FileOutputStream oldOut = journalOut;
+    generation = newGen;
+    journalOut = newOut;
+    journalBytes = 0;
+    compacting = true;
+    try {
+      oldOut.close();
+    }
+    catch(IOException e) {
+      // Everything written to it was forced to disk by commit()
+    }
+
+    compactor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          store.write(snapshot, newGen);
+          long[] gens = journalGenerations();
+          for(int i = 0; i < gens.length; i++)
+            if(gens[i] < newGen)
+              journalFile(gens[i]).delete();
+        }
+        catch(Exception e) {
+          // The old roster file and journal files are still intact, so the
+          // data is safe; compaction will be retried after the next change
+          System.err.println("@RosterJournal/compact : " +e);
+        }
+        finally {
+          synchronized(RosterJournal.this) {
+            compacting = false;
+          }
+        }
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Waits for a compaction in progress to finish, stops the background
+   * thread, and closes the journal file
+   */
+  public void close() throws IOException {
+    // Not synchronized while waiting, as the compaction locks the journal
+    // when it finishes
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized(this) {
+      if(journalOut != null)
+        journalOut.close();
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Appends a framed record (length, CRC32, payload) to the pending buffer
+   */
+  private void queue(byte[] payload) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    pendingOut.writeInt(payload.length);
+    pendingOut.writeInt((int)crc.getValue());
+    pendingOut.write(payload);
+  }
+
+
+
+  /**
+   * Applies every intact record of a journal file to the list. Returns the
+   * length of the intact part of the file
+   */
+  private long replay(File f, ArrayList<Employee> empList,
+                      HashMap<String, Integer> index) throws IOException {
+    byte[] data = Files.readAllBytes(f.toPath());
+    CRC32 crc = new CRC32();
+    int pos = 0;
+    int len, sum;
+
+    while(pos + 8 <= data.length) {
+      len = readInt(data, pos);
+      sum = readInt(data, pos + 4);
+      if(len < 0 || pos + 8 + len > data.length)
+        break;
+
+      crc.reset();
+      crc.update(data, pos + 8, len);
+      if((int)crc.getValue() != sum)
+        break;
+
+      apply(new DataInputStream(new ByteArrayInputStream(data, pos + 8, len)),
+            empList, index);
+      pos += 8 + len;
+    }
+
+    return pos;
+  }
+
+
+
+  private void apply(DataInputStream in, ArrayList<Employee> empList,
+                     HashMap<String, Integer> index) throws IOException {
+    byte op = in.readByte();
+    String name = in.readUTF();
+    Integer i = index.get(name);
+
+    // Removed employees are left as null and dropped by open() once every
+    // journal has been replayed, rather than shifting the list per record
+    if(op == OP_REMOVE) {
+      if(i != null) {
+        empList.set(i, null);
+        index.remove(name);
+      }
+      return;
+    }
+
+    String position = in.readUTF();
+    String phone = in.readUTF();
+    String lastSub = in.readUTF();
+    String comment = in.readUTF();
+    int min = in.readShort();
+    int max = in.readShort();
+
+    int perDay = TimeSlots.LEGACY_SLOTS_PER_DAY;
+    long[] prf, alt;
+    if(op == OP_PUT) {
+      perDay = in.readShort();
+      if(perDay <= 0 || perDay > 24*60)
+        throw new IOException("bad slots per day " +perDay);
+      prf = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      alt = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      for(int w = 0; w < prf.length; w++) {
+        prf[w] = in.readLong();
+        alt[w] = in.readLong();
+      }
+    }
+    else {
+      prf = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      alt = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      long dayPrf, dayAlt;
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        dayPrf = in.readLong();
+        dayAlt = in.readLong();
+        for(int r = 0; r < perDay; r++) {
+          SlotMask.set(prf, d*perDay + r, (dayPrf >>> r & 1L) != 0);
+          SlotMask.set(alt, d*perDay + r, (dayAlt >>> r & 1L) != 0);
+        }
+      }
+    }
+
+    long[][] masks = Employee.convertAvail(prf, alt, perDay);
+    Employee emp = new Employee(name, position, phone, min, max, lastSub,
+                                comment, masks[0], masks[1]);
+    if(i != null)
+      empList.set(i, emp);
+    else {
+      index.put(name, empList.size());
+      empList.add(emp);
+    }
+  }
+
+
+
+  private static int readInt(byte[] data, int pos) {
+    return (data[pos] & 0xFF) << 24 | (data[pos+1] & 0xFF) << 16
+           | (data[pos+2] & 0xFF) << 8 | (data[pos+3] & 0xFF);
+  }
+
+
+
+  private File journalFile(long gen) {
+    return new File(dir, "roster." +gen +".jnl");
+  }
+
+
+
+  /**
+   * Returns the generations of every journal file in the directory, sorted
+   */
+  private long[] journalGenerations() {
+    String[] names = dir.list();
+    if(names == null)
+      return new long[0];
+
+    long[] gens = new long[names.length];
+    int count = 0;
+    String mid;
+    for(int i = 0; i < names.length; i++) {
+      if(!names[i].startsWith("roster.") || !names[i].endsWith(".jnl"))
+        continue;
+      mid = names[i].substring(7, names[i].length()-4);
+      try {
+        gens[count] = Long.parseLong(mid);
+        count++;
+      }
+      catch(NumberFormatException e) {
+        // Not one of ours
+      }
+    }
+
+    gens = Arrays.copyOf(gens, count);
+    Arrays.sort(gens);
+    return gens;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is a read-only copy of everything the scheduling engine needs:
+ *    every employee's availability masks and requested hours, the business
+ *    hours, the compiled scheduling constraints and staffing demand, and the
+ *    shifts currently assigned to each employee. It is taken on the thread
+ *    that owns the ScheduleMaker and is never changed afterwards, so any
+ *    number of Schedulers on any number of threads can share it while the
+ *    employees keep being edited.
+ *
+ *    The arrays returned by the getters are shared, not copied, and must not
+ *    be modified.
+ */
+
+import java.util.ArrayList;
+
+public class RosterSnapshot {
+  private final ArrayList<Employee> emps;
+  private final int numEmps;
+
+  // Per employee, weekly availability masks, and the available slots during
+  // which the business is open
+  private final long[][] prfMask,
+                         altMask,
+                         usableMask;
+
+  // Requested hours over the period, in slots
+  private final int[] minSlots,
+                      maxSlots;
+
+  // Weekly mask of the slots during which the business is open
+  private final long[] openMask;
+
+  // Per employee, every shift they could be given each day
+  private final ShiftBlockCache.Blocks[] blocks;
+
+  // Per employee, per day of the period shifts assigned when the snapshot was taken
+  private final int[][] shiftStart,
+                        shiftLength;
+
+  // Compiled constraints and staffing demand, copied for each Scheduler.
+  // Null if there are neither
+  private final ConstraintChecker checker;
+
+//==============================================================================
+  /**
+   * Takes the copy. openMask is weekly, from Scheduler::openMasks.
+   * constraints and demand may be null, and if blockCache is null the blocks
+   * are worked out instead of taken from a cache
+   */
+  public RosterSnapshot(ArrayList<Employee> empList, long[] openMask,
+                        ConstraintSet constraints, StaffingDemand demand,
+                        ShiftBlockCache blockCache) {
+    emps = new ArrayList<Employee>(empList);
+    numEmps = emps.size();
+    prfMask = new long[numEmps][];
+    altMask = new long[numEmps][];
+    usableMask = new long[numEmps][];
+    minSlots = new int[numEmps];
+    maxSlots = new int[numEmps];
+    shiftStart = new int[numEmps][TimeSlots.NUM_DAYS];
+    shiftLength = new int[numEmps][TimeSlots.NUM_DAYS];
+    this.openMask = openMask.clone();
+
+    Employee emp;
+    int[] req;
+    for(int e = 0; e < numEmps; e++) {
+      emp = emps.get(e);
+      prfMask[e] = emp.availMask(ScheduleMaker.PRF).clone();
+      altMask[e] = emp.availMask(ScheduleMaker.ALT).clone();
+      usableMask[e] = new long[openMask.length];
+      for(int w = 0; w < openMask.length; w++)
+        usableMask[e][w] = (prfMask[e][w] | altMask[e][w]) & openMask[w];
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+        shiftStart[e][d] = emp.getShiftStart(d);
+        shiftLength[e][d] = emp.getShiftLength(d);
+      }
+
+      // The requested hours are per week
+      req = emp.requestedHours();
+      minSlots[e] = Math.max(0, TimeSlots.slots(req[0])*TimeSlots.NUM_WEEKS);
+      maxSlots[e] = Math.max(minSlots[e],
+                             TimeSlots.slots(req[1])*TimeSlots.NUM_WEEKS);
+    }
+
+    blocks = new ShiftBlockCache.Blocks[numEmps];
+    for(int e = 0; e < numEmps; e++)
+      blocks[e] = (blockCache != null) ? blockCache.get(emps.get(e))
+                  : ShiftBlockCache.compute(emps.get(e), this.openMask);
+
+    if(constraints == null && demand == null)
+      checker = null;
+    else {
+      if(constraints == null)
+        constraints = new ConstraintSet();
+      checker = constraints.compile(emps, demand);
+    }
+  }
+
+
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  public int numEmployees() {
+    return numEmps;
+  }
+
+  /**
+   * Returns the employees in the order the engine refers to them. Only the
+   * thread that owns the ScheduleMaker may touch the Employee objects
+   */
+  public ArrayList<Employee> getEmployees() {
+    return emps;
+  }
+
+  public long[][] getPrfMasks() {
+    return prfMask;
+  }
+
+  public long[][] getAltMasks() {
+    return altMask;
+  }
+
+  public long[][] getUsableMasks() {
+    return usableMask;
+  }
+
+  public int[] getMinSlots() {
+    return minSlots;
+  }
+
+  public int[] getMaxSlots() {
+    return maxSlots;
+  }
+
+  public long[] getOpenMasks() {
+    return openMask;
+  }
+
+  public ShiftBlockCache.Blocks[] getBlocks() {
+    return blocks;
+  }
+
+  public int[][] getShiftStarts() {
+    return shiftStart;
+  }
+
+  public int[][] getShiftLengths() {
+    return shiftLength;
+  }
+
+
+
+  /**
+   * Returns a checker of its own for one Scheduler, or null if there are no
+   * constraints
+   */
+  public ConstraintChecker newChecker() {
+    return (checker == null) ? null : checker.copy();
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class stores the whole roster in a single binary file instead of one
+ *    text file per employee. The file is laid out as follows:
+ *
+ *      header       magic, version, number of records, number of strings,
+ *                   journal generation, slots per day
+ *      records      one fixed-size record per employee
+ *      string table every distinct name, position, phone, etc. once
+ *
+ *    A record refers to its strings by their index in the string table, so a
+ *    position shared by many employees is only stored once. Availability takes
+ *    2 bits per slot, kept as two weekly bit planes, PRF and then ALT, each
+ *    7*slots-per-day bits rounded up to whole bytes. The record size follows
+ *    from the slots per day in the header, and a roster written with another
+ *    slot length is converted when it is loaded.
+ *
+ *    Version 1 and 2 files have no slots per day; they hold two 48-bit planes
+ *    per day.
+ *
+ *    The file is read into memory with a single channel read, not mapped: a
+ *    mapping stays open until it is garbage collected, and on Windows an open
+ *    mapping stops the file from being replaced. It is always written to a
+ *    temporary file first and then moved over the old one, so a crash during a
+ *    save leaves the previous roster intact. The journal generation tells
+ *    RosterJournal which journal files are already folded into this file.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class RosterStore {
+  public static final String FILE_NAME = "roster.dat";
+
+  private static final int MAGIC = 0x52535452,   // "RSTR"
+                           VERSION = 3,
+                           HEADER_SIZE = 28,
+                           V2_HEADER_SIZE = 24,
+                           V1_HEADER_SIZE = 16,
+                           FIELDS_SIZE = 5*4 + 2*2,
+                           V2_SLOT_BYTES = 6,    // 48 bits
+                           V2_RECORD_SIZE = FIELDS_SIZE + 7*2*V2_SLOT_BYTES;
+
+  private File file;
+  
+  // Journal generation of the file that was last loaded or saved
+  private volatile long generation;
+
+//==============================================================================
+  public RosterStore(File file) {
+    this.file = file;
+    generation = 0;
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  public Boolean exists() {
+    return file.exists();
+  }
+  
+  
+  
+  public long getGeneration() {
+    return generation;
+  }
+
+
+
+  /**
+   * Reads every employee from the roster file
+   */
+  public ArrayList<Employee> load() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    ByteBuffer buf;
+    try {
+      FileChannel channel = raf.getChannel();
+      if(channel.size() > Integer.MAX_VALUE)
+        throw new IOException(file +" is too large");
+      buf = ByteBuffer.allocate((int)channel.size());
+      while(buf.hasRemaining())
+        if(channel.read(buf) < 0)
+          throw new IOException(file +" was cut short while reading");
+      buf.flip();
+    }
+    finally {
+      raf.close();
+    }
+
+    if(buf.remaining() < V1_HEADER_SIZE || buf.getInt() != MAGIC)
+      throw new IOException(file +" is not a roster file");
+    int version = buf.getInt();
+    if(version < 1 || version > VERSION)
+      throw new IOException(file +" has unsupported version " +version);
+
+    int numRecords = buf.getInt();
+    int numStrings = buf.getInt();
+    int headerSize = V1_HEADER_SIZE;
+    int slotsPerDay = TimeSlots.LEGACY_SLOTS_PER_DAY;
+    int recordSize = V2_RECORD_SIZE;
+    generation = 0;
+    if(version >= 2) {
+      headerSize = V2_HEADER_SIZE;
+      generation = buf.getLong();
+    }
+    if(version >= 3) {
+      headerSize = HEADER_SIZE;
+      slotsPerDay = buf.getInt();
+      if(slotsPerDay <= 0 || slotsPerDay > 24*60)
+        throw new IOException(file +" has bad slots per day " +slotsPerDay);
+      recordSize = recordSize(slotsPerDay);
+    }
+
+    // Decode the string table first, which follows the records
+    String[] strings = new String[numStrings];
+    int pos = headerSize + numRecords*recordSize;
+    int len;
+    byte[] bytes = new byte[64];
+    for(int i = 0; i < numStrings; i++) {
+      len = buf.getInt(pos);
+      if(len > bytes.length)
+        bytes = new byte[len];
+      buf.position(pos + 4);
+      buf.get(bytes, 0, len);
+      strings[i] = new String(bytes, 0, len, StandardCharsets.UTF_8);
+      pos += 4 + len;
+    }
+
+    ArrayList<Employee> list = new ArrayList<Employee>(numRecords);
+    for(int i = 0; i < numRecords; i++)
+      list.add(readRecord(buf, headerSize + i*recordSize, strings, version,
+                          slotsPerDay));
+    return list;
+  }
+
+
+
+  /**
+   * Writes the whole roster, replacing the previous roster file
+   */
+  public void save(ArrayList<Employee> empList, long gen) throws IOException {
+    write(encode(empList, gen), gen);
+  }
+
+
+
+  /**
+   * Encodes the whole roster into the file layout. This is the only part of
+   * a save that reads the Employee objects, so a save can be split into
+   * encode() on the thread that owns the roster and write() on another
+   */
+  public byte[] encode(ArrayList<Employee> empList, long gen)
+    throws IOException {
+
+    HashMap<String, Integer> stringIds = new HashMap<String, Integer>();
+    ArrayList<String> strings = new ArrayList<String>();
+    int[][] refs = new int[empList.size()][];
+
+    Employee emp;
+    for(int i = 0; i < empList.size(); i++) {
+      emp = empList.get(i);
+      checkHours(emp);
+      refs[i] = new int[] {intern(emp.fileName(), stringIds, strings),
+                           intern(emp.getPosition(), stringIds, strings),
+                           intern(emp.getPhone(), stringIds, strings),
+                           intern(emp.getLastSub(), stringIds, strings),
+                           intern(emp.getComment(), stringIds, strings)};
+    }
+
+    int recordSize = recordSize(TimeSlots.SLOTS_PER_DAY);
+    ByteArrayOutputStream bytesOut =
+      new ByteArrayOutputStream(HEADER_SIZE + empList.size()*recordSize*2);
+    DataOutputStream out = new DataOutputStream(bytesOut);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(empList.size());
+    out.writeInt(strings.size());
+    out.writeLong(gen);
+    out.writeInt(TimeSlots.SLOTS_PER_DAY);
+
+    for(int i = 0; i < empList.size(); i++)
+      writeRecord(out, empList.get(i), refs[i]);
+
+    byte[] bytes;
+    for(int i = 0; i < strings.size(); i++) {
+      bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    out.close();
+    return bytesOut.toByteArray();
+  }
+
+
+
+  /**
+   * Writes an encoded roster, replacing the previous roster file
+   */
+  public void write(byte[] encoded, long gen) throws IOException {
+    File tmp = new File(file.getPath() +".tmp");
+    FileOutputStream fos = new FileOutputStream(tmp);
+    try {
+      fos.write(encoded);
+      fos.getFD().sync();
+    }
+    finally {
+      fos.close();
+    }
+
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                 StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch(AtomicMoveNotSupportedException e) {
+      Files.move(tmp.toPath(), file.toPath(),
+                 StandardCopyOption.REPLACE_EXISTING);
+    }
+    generation = gen;
+  }
+
+
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Checks that the employee's requested hours fit the 16-bit fields they are
+   * stored in, here and in the journal
+   */
+  static void checkHours(Employee emp) throws IOException {
+    int[] req = emp.requestedHours();
+    for(int i = 0; i < req.length; i++)
+      if(req[i] < Short.MIN_VALUE || req[i] > Short.MAX_VALUE)
+        throw new IOException(emp.fileName() +" requested hours " +req[i]
+                              +" out of range");
+  }
+
+
+
+  private Employee readRecord(ByteBuffer buf, int pos, String[] strings,
+                              int version, int slotsPerDay) {
+    String name = strings[buf.getInt(pos)];
+    String position = strings[buf.getInt(pos + 4)];
+    String phone = strings[buf.getInt(pos + 8)];
+    String lastSub = strings[buf.getInt(pos + 12)];
+    String comment = strings[buf.getInt(pos + 16)];
+    int min = buf.getShort(pos + 20);
+    int max = buf.getShort(pos + 22);
+
+    int weekSlots = TimeSlots.WEEK_DAYS*slotsPerDay;
+    long[] prf = SlotMask.create(weekSlots);
+    long[] alt = SlotMask.create(weekSlots);
+    pos += FIELDS_SIZE;
+    if(version >= 3) {
+      getPlane(buf, pos, prf, weekSlots);
+      getPlane(buf, pos + planeBytes(slotsPerDay), alt, weekSlots);
+    }
+    else
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        putDay(prf, d, get48(buf, pos));
+        putDay(alt, d, get48(buf, pos + V2_SLOT_BYTES));
+        pos += 2*V2_SLOT_BYTES;
+      }
+
+    long[][] masks = Employee.convertAvail(prf, alt, slotsPerDay);
+    return new Employee(name, position, phone, min, max, lastSub, comment,
+                        masks[0], masks[1]);
+  }
+
+
+
+  private void writeRecord(DataOutputStream out, Employee emp, int[] refs)
+    throws IOException {
+
+    for(int i = 0; i < refs.length; i++)
+      out.writeInt(refs[i]);
+
+    int[] req = emp.requestedHours();
+    out.writeShort(req[0]);
+    out.writeShort(req[1]);
+
+    putPlane(out, emp.availMask(ScheduleMaker.PRF));
+    putPlane(out, emp.availMask(ScheduleMaker.ALT));
+  }
+
+
+
+  private static int planeBytes(int slotsPerDay) {
+    return (TimeSlots.WEEK_DAYS*slotsPerDay + 7) / 8;
+  }
+
+
+
+  private static int recordSize(int slotsPerDay) {
+    return FIELDS_SIZE + 2*planeBytes(slotsPerDay);
+  }
+
+
+
+  /**
+   * Reads a weekly plane of weekSlots bits, 8 slots to a byte with the first
+   * slot in the lowest bit
+   */
+  private static void getPlane(ByteBuffer buf, int pos, long[] mask,
+                               int weekSlots) {
+    int numBytes = (weekSlots + 7) / 8;
+    long b;
+    for(int i = 0; i < numBytes; i++) {
+      b = buf.get(pos + i) & 0xFFL;
+      mask[i >>> 3] |= b << ((i & 7) << 3);
+    }
+  }
+
+
+
+  private static void putPlane(DataOutputStream out, long[] mask)
+    throws IOException {
+    int numBytes = planeBytes(TimeSlots.SLOTS_PER_DAY);
+    for(int i = 0; i < numBytes; i++)
+      out.writeByte((int)(mask[i >>> 3] >>> ((i & 7) << 3)));
+  }
+
+
+
+  private static long get48(ByteBuffer buf, int pos) {
+    return ((long)(buf.getShort(pos) & 0xFFFF) << 32)
+           | (buf.getInt(pos + 2) & 0xFFFFFFFFL);
+  }
+
+
+
+  /**
+   * Copies a version 2 day plane into weekday d of a 48-slot weekly mask
+   */
+  private static void putDay(long[] mask, int d, long bits) {
+    int base = d*TimeSlots.LEGACY_SLOTS_PER_DAY;
+    for(long m = bits; m != 0; m &= m-1)
+      SlotMask.set(mask, base + Long.numberOfTrailingZeros(m), true);
+  }
+
+
+
+  /**
+   * Returns the string's index in the string table, adding it if needed
+   */
+  private static int intern(String s, HashMap<String, Integer> ids,
+                            ArrayList<String> strings) {
+    Integer id = ids.get(s);
+    if(id == null) {
+      id = strings.size();
+      ids.put(s, id);
+      strings.add(s);
+    }
+    return id;
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ * 
+ * Description:
+ *    This interface is implemented by the class that writes the schedule file.
+ *    ScheduleMaker loads the implementation by its class name the first time
+ *    it is needed, so the library behind it is only loaded by a program that
+ *    exports.
+ */
+
+import java.io.File;
+
+public interface ScheduleExporter {
+  /**
+   * Writes the table to the file. Progress is reported to the monitor, if not
+   * null, and the export stops with a CancellationException if it asks to
+   * cancel, leaving no partial file behind
+   */
+  public void export(ScheduleTable table, File outFile, TaskMonitor monitor)
+    throws Exception;
+  
+  /**
+   * Loads and sets up everything the first export needs without writing a
+   * file, so that export doesn't have to wait for it
+   */
+  public void warm() throws Exception;
+}
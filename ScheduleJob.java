@@ -0,0 +1,139 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ * 
+ * Description:
+ *    This class generates a schedule and exports it as a single job that can
+ *    run off the Event Dispatch Thread. Everything it needs is copied when the
+ *    job is created, so the employees can keep being edited while it runs:
+ *
+ *      ScheduleMaker.newScheduleJob()  on the GUI thread, takes the copy
+ *      run(monitor)                    on any thread, generates and exports
+ *      apply()                         on the GUI thread, publishes the shifts
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+
+public class ScheduleJob {
+  private ScheduleMaker   sm;
+  private PortfolioSolver solver;
+  private Scheduler       scheduler;
+  private String          fileName;
+  
+  // Layout of the exported table: positions and, for each, the index of each
+  // of its employees in the scheduler's list along with their name and phone
+  private ArrayList<String>    positions;
+  private ArrayList<int[]>     members;
+  private ArrayList<String[]>  names,
+                               phones;
+  
+  private ScheduleTable table;
+  
+//==============================================================================
+  /**
+   * Use ScheduleMaker::newScheduleJob
+   */
+  ScheduleJob(ScheduleMaker sm, PortfolioSolver solver, String fileName) {
+    this.sm = sm;
+    this.solver = solver;
+    this.fileName = fileName;
+    positions = new ArrayList<String>();
+    members = new ArrayList<int[]>();
+    names = new ArrayList<String[]>();
+    phones = new ArrayList<String[]>();
+  }
+  
+  
+  
+  /**
+   * Adds a position to the exported table along with the employees who hold
+   * it, given by their index in the solver's snapshot
+   */
+  void addPosition(String position, int[] empIndexes, String[] empNames,
+                   String[] empPhones) {
+    positions.add(position);
+    members.add(empIndexes);
+    names.add(empNames);
+    phones.add(empPhones);
+  }
+  
+  
+  
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Generates the schedule and writes the Excel file. Progress is reported to
+   * the monitor, if not null, with the first half for the schedule and the
+   * second half for the export
+   */
+  public void run(final TaskMonitor monitor) throws Exception {
+    scheduler = solver.run(monitor == null ? null : new TaskMonitor() {
+      @Override
+      public void progress(int done, int total) {
+        monitor.progress(done, total*2);
+      }
+      
+      @Override
+      public Boolean isCancelled() {
+        return monitor.isCancelled();
+      }
+    });
+    
+    table = new ScheduleTable();
+    int[] idx;
+    String[] row;
+    for(int p = 0; p < positions.size(); p++) {
+      table.addPosition(positions.get(p));
+      idx = members.get(p);
+      for(int j = 0; j < idx.length; j++) {
+        row = table.addRow(names.get(p)[j], phones.get(p)[j]);
+        for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+          row[ScheduleTable.FIRST_DAY_COL + d] = TimeSlots.shiftLabel(
+            scheduler.getShiftStart(idx[j], d),
+            scheduler.getShiftLength(idx[j], d));
+      }
+    }
+    
+    if(monitor != null && monitor.isCancelled())
+      throw new CancellationException();
+    
+    sm.export(table, fileName, monitor == null ? null : new TaskMonitor() {
+      @Override
+      public void progress(int done, int total) {
+        monitor.progress(total + done, total*2);
+      }
+      
+      @Override
+      public Boolean isCancelled() {
+        return monitor.isCancelled();
+      }
+    });
+  }
+  
+  
+  
+  /**
+   * Gives the generated shifts to the Employee objects. Call this on the
+   * thread that owns the ScheduleMaker after run() has finished
+   */
+  public void apply() {
+    scheduler.apply();
+  }
+  
+  
+  
+  public String getFileName() {
+    return fileName;
+  }
+  
+  
+  
+  /**
+   * Returns true once run() has generated the schedule, even if the export
+   * then failed
+   */
+  public Boolean isGenerated() {
+    return table != null;
+  }
+}
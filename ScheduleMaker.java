@@ -3,23 +3,31 @@
  * 
  * Description:
  *    This class is the back-end "meat" of the program. It handles the
- *    read/write of employee and business-related files and also creates and
- *    exports the MS Excel file containing the generated work schedule.
+ *    read/write of the roster and business-related files and also creates and
+ *    exports the MS Excel file containing the generated work schedule. The
+ *    file itself is written by a ScheduleExporter that is only loaded once
+ *    something is exported, so starting the program doesn't load Apache POI.
  */
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Scanner;
-import org.apache.poi.xssf.usermodel.*;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ScheduleMaker {
   // Availability types: unavailable, alternate, preferred
@@ -28,8 +36,25 @@ public class ScheduleMaker {
                           PRF = 2;
   
   public static final int HOURS_CLOSED = -1,
-                          HOURS_24 = -2,
-                          NUM_ROWS = 48;
+                          HOURS_24 = -2;
+  
+  // Writes the schedule file, loaded by name on first use; see exporter()
+  private static final String EXPORTER_CLASS = "XlsxExporter";
+  
+  public static final String HOURS_FILE = "hours.dat",
+                             LEGACY_DIR = "employees",
+                             LEGACY_BAD_DIR = "employees.bad";
+  
+  // Upper bound on the threads used to read the old employee files
+  private static final int LOAD_THREADS = 8;
+  
+  // Default time given to the schedulers searching for a better schedule
+  private static final long SOLVE_MILLIS = 2000;
+  
+  // The store's directory; every file is read from and written to it
+  private File baseDir;
+  
+  private long solveMillis;
   
   // The opening and closing times of the business
   // openClose[0][i]: the opening time for i-th day
@@ -37,47 +62,126 @@ public class ScheduleMaker {
   public String[][] openCloseStr;
   public int[][]    openCloseInt;
   
+  // Weekly mask of the slots during which the business is open, including
+  // the hours past midnight of the day before. Worked out from openCloseInt
+  // whenever the hours are read
+  private long[] openMask;
+  
+  // Problems found while loading that did not stop the program
+  private ArrayList<String> loadWarnings;
+  
   // Basically, false only if the program has never been run
   private Boolean hasHoursFile;
   
   public ArrayList<Employee> empList;
   private ArrayList<String>  posList;
   
+  // Name -> employee and position -> employees lookups, kept in step with
+  // empList. A position is in posList for as long as its set is non-empty
+  private HashMap<String, Employee>                empByName;
+  private HashMap<String, LinkedHashSet<Employee>> posEmps;
+  
+  // Single-file storage for every employee's data, with a journal of the
+  // changes made since the file was last written
+  private RosterStore   rosterStore;
+  private RosterJournal journal;
+  
+  // Slot -> employees lookup, kept in step with empList
+  private AvailabilityIndex availIndex;
+  
+  // Scheduling constraints the automatic scheduler must follow
+  private ConstraintSet constraints;
+  
+  // Employees of each position needed in each slot
+  private StaffingDemand demand;
+  
+  // The shifts each employee could be given, kept between schedule runs
+  private ShiftBlockCache blockCache;
+  
+  // Shared by every store, null until the first export or warmExporter()
+  private static ScheduleExporter exporter;
+  
 //==============================================================================
-  public ScheduleMaker() {
+  public ScheduleMaker() throws Exception {
+    this(new File("."), null);
+  }
+  
+  
+  
+  public ScheduleMaker(ProgressListener listener) throws Exception {
+    this(new File("."), listener);
+  }
+  
+  
+  
+  /**
+   * Loads everything from the store's directory, reporting the progress of
+   * loading the employees to the listener if it isn't null. Throws an
+   * Exception naming the file if the business hours or the employees can't be
+   * read
+   */
+  public ScheduleMaker(File baseDir, ProgressListener listener)
+    throws Exception {
+    
+    this.baseDir = baseDir;
     empList = new ArrayList<Employee>();
+    loadWarnings = new ArrayList<String>();
     posList = new ArrayList<String>();
-    openCloseStr = new String[2][7];
-    openCloseInt = new int[2][7];
-    
-    // If the directory doesn't exist, create one
-    // This directory holds all the employee files
-    File empFolder = new File("employees");
-    if(!empFolder.exists())
-      empFolder.mkdir();
-    
-    File hoursFile = new File("hours.dat");
+    empByName = new HashMap<String, Employee>();
+    posEmps = new HashMap<String, LinkedHashSet<Employee>>();
+    availIndex = new AvailabilityIndex();
+    rosterStore = new RosterStore(file(RosterStore.FILE_NAME));
+    journal = new RosterJournal(rosterStore, baseDir);
+    openCloseStr = new String[2][TimeSlots.WEEK_DAYS];
+    openCloseInt = new int[2][TimeSlots.WEEK_DAYS];
+    openMask = SlotMask.week();
+    solveMillis = SOLVE_MILLIS;
+    
+    File hoursFile = file(HOURS_FILE);
     if(hoursFile.exists()) {
       hasHoursFile = true;
       try {
         readHoursFile();
       }
       catch(Exception e) {
-        GUI.msgPopup("CRITICAL ERROR! Program has terminated. See err output.");
-        System.err.println("@ScheduleMaker/constructor/hours : " +e);
-        System.exit(1);
+        throw new Exception(hoursFile +": " +e, e);
       }
     }
     else
       hasHoursFile = false;
     
+    // Bad constraints shouldn't stop the program; they can be fixed in the
+    // business panel
+    constraints = new ConstraintSet();
+    File constraintsFile = file(ConstraintSet.FILE_NAME);
+    if(constraintsFile.exists()) {
+      try {
+        constraints = ConstraintSet.load(constraintsFile);
+      }
+      catch(Exception e) {
+        loadWarnings.add(ConstraintSet.FILE_NAME +" " +e.getMessage());
+      }
+    }
+    
+    blockCache = new ShiftBlockCache(openMask);
+    
+    demand = new StaffingDemand();
+    File demandFile = file(StaffingDemand.FILE_NAME);
+    if(demandFile.exists()) {
+      try {
+        demand = StaffingDemand.load(demandFile);
+      }
+      catch(Exception e) {
+        loadWarnings.add(StaffingDemand.FILE_NAME +" " +e.getMessage());
+      }
+    }
+    
     try {
-      readEmployees();
+      readEmployees(listener);
     }
     catch(Exception e) {
-      GUI.msgPopup("CRITICAL ERROR! Program has terminated. See err output.");
-      System.err.println("@ScheduleMaker/constructor/employees : " +e);
-      System.exit(1);
+      journal.close();
+      throw new Exception(file(RosterStore.FILE_NAME) +": " +e, e);
     }
   }
 
@@ -88,58 +192,127 @@ public class ScheduleMaker {
    * Reads the business hours data from file
    */
   private void readHoursFile() throws Exception {
-    Scanner hoursReader = new Scanner(new File("hours.dat"));
-    for(int i = 0; i < 7; i++) {
+    Scanner hoursReader = new Scanner(file(HOURS_FILE));
+    for(int i = 0; i < TimeSlots.WEEK_DAYS; i++) {
       openCloseInt[0][i] = hoursReader.nextInt();
       openCloseInt[1][i] = hoursReader.nextInt();
-      openCloseStr[0][i] = timeIntToStr(openCloseInt[0][i]);
-      openCloseStr[1][i] = timeIntToStr(openCloseInt[1][i]);
+      openCloseStr[0][i] = TimeSlots.timeLabel(openCloseInt[0][i]);
+      openCloseStr[1][i] = TimeSlots.timeLabel(openCloseInt[1][i]);
     }
     hoursReader.close();
+    openMask = Scheduler.openMasks(openCloseInt);
   }
   
   
   
   /**
-   * Reads all of the employees' data from their respective files
+   * Reads all of the employees' data from the roster file and replays the
+   * changes recorded in the journal since it was written
+   * 
+   * If there is no roster file yet, the employees are migrated from the old
+   * layout of one file per employee in the "employees" directory. The old
+   * files are left in place but are not read again once the roster exists,
+   * except for unreadable ones, which are moved to "employees.bad" first.
+   */
+  private void readEmployees(ProgressListener listener) throws Exception {
+    Metrics.Span span = Metrics.start("load.employees");
+    if(!rosterStore.exists()) {
+      Metrics.Span migrate = Metrics.start("load.migrate");
+      ArrayList<Employee> migrated = readLegacyEmployees(listener);
+      rosterStore.save(migrated, 0);
+      migrate.stop(migrated.size());
+    }
+    empList.addAll(journal.open());
+    if(listener != null)
+      listener.progress(1, 1);
+    
+    for(int i = 0; i < empList.size(); i++) {
+      availIndex.add(empList.get(i));
+      empByName.put(empList.get(i).getName(), empList.get(i));
+      addToPosition(empList.get(i));
+    }
+    span.stop(empList.size());
+  }
+  
+  
+  
+  /**
+   * Reads all of the employees' data from their respective files in the old
+   * "employees" directory, as written by Employee::fileData
+   * 
+   * The files are split into chunks that are parsed in parallel on a small
+   * thread pool, each chunk with its own parser. The files are sorted by name
+   * and each result is stored at its file's index, so the resulting order
+   * doesn't depend on which thread finishes first.
+   * 
+   * A malformed file is skipped and reported in loadWarnings rather than
+   * stopping the whole program. It is moved to the "employees.bad" directory
+   * so it isn't lost once the roster is written without it; if it can't be
+   * moved, loading fails before the roster is written, and the migration is
+   * tried again on the next start.
    */
-  private void readEmployees() throws Exception {
-    String   codeRow, name, position, phone, lastSubmission, comment;
-    Scanner  empReader;
-    int      min, max;
-    byte[][] avail;
+  private ArrayList<Employee> readLegacyEmployees(
+    final ProgressListener listener) throws Exception {
     
-    File empFolder = new File("employees");
-    File[] empFiles = empFolder.listFiles();
-    String fileName;
+    ArrayList<Employee> list = new ArrayList<Employee>();
+    File empFolder = file(LEGACY_DIR);
+    final File[] empFiles = empFolder.listFiles();
     
-    for(int i = 0; i < empFiles.length; i++) {
-      fileName = "employees/" +empFiles[i].getName();
-      empReader = new Scanner(new File(fileName));
-      
-      name = empFiles[i].getName();
-      position = empReader.nextLine();
-      phone = empReader.nextLine();
-      min = Integer.parseInt(empReader.nextLine());
-      max = Integer.parseInt(empReader.nextLine());
-      lastSubmission = empReader.nextLine();
-      comment = empReader.nextLine();
-      
-      avail = new byte[NUM_ROWS][7];
-      for(int r = 0; r < NUM_ROWS; r++) {
-        codeRow = empReader.nextLine();
-        for(int d = 0; d < 7; d++)
-          avail[r][d] = Byte.parseByte(Character.toString(codeRow.charAt(d)));
+    if(empFiles == null || empFiles.length == 0)
+      return list;
+    Arrays.sort(empFiles);
+    
+    final Employee[] parsed = new Employee[empFiles.length];
+    final String[] errors = new String[empFiles.length];
+    final AtomicInteger done = new AtomicInteger();
+    
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+                           LOAD_THREADS);
+    int chunk = (empFiles.length + threads*4 - 1) / (threads*4);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+    
+    try {
+      for(int start = 0; start < empFiles.length; start += chunk) {
+        final int from = start;
+        final int to = Math.min(start+chunk, empFiles.length);
+        tasks.add(pool.submit(new Runnable() {
+          @Override
+          public void run() {
+            EmployeeFileParser parser = new EmployeeFileParser();
+            for(int i = from; i < to; i++) {
+              try {
+                parsed[i] = parser.parse(empFiles[i]);
+              }
+              catch(IOException e) {
+                errors[i] = e.getMessage();
+              }
+              if(listener != null)
+                listener.progress(done.incrementAndGet(), empFiles.length);
+            }
+          }
+        }));
       }
       
-      empList.add(new Employee(name, position, phone, min, max,
-                               lastSubmission, comment, avail));
-      
-      if(isNewPosition(position))
-        posList.add(position);
-      
-      empReader.close();
+      for(int i = 0; i < tasks.size(); i++)
+        tasks.get(i).get();
+    }
+    finally {
+      pool.shutdown();
+    }
+    
+    File badFolder = file(LEGACY_BAD_DIR);
+    for(int i = 0; i < empFiles.length; i++) {
+      if(parsed[i] != null)
+        list.add(parsed[i]);
+      else {
+        moveAside(empFiles[i], badFolder);
+        loadWarnings.add(LEGACY_DIR +"/" +errors[i] +" (not imported, moved"
+                         +" to " +LEGACY_BAD_DIR +"/)");
+      }
     }
+    
+    return list;
   }
   
   
@@ -151,14 +324,23 @@ public class ScheduleMaker {
     throws Exception {
     
     Employee emp = new Employee(name, position, phone);
-    FileWriter efw = new FileWriter("employees/" +emp.fileName());
-    PrintWriter empWriter = new PrintWriter(new BufferedWriter(efw));
-    empWriter.print(emp.fileData());
-    empWriter.close();
-    
-    if(isNewPosition(position))
-      posList.add(position); 
     empList.add(emp);
+    Metrics.Span span = Metrics.start("save.add");
+    try {
+      journal.put(emp);
+      journal.commit();
+      span.stop();
+    }
+    catch(Exception e) {
+      journal.rollback();
+      empList.remove(emp);
+      throw e;
+    }
+    journal.maybeCompact(empList);
+    
+    empByName.put(emp.getName(), emp);
+    addToPosition(emp);
+    availIndex.add(emp);
   }
   
   
@@ -173,17 +355,39 @@ public class ScheduleMaker {
   public void editEmployee(Employee emp, String position, String phone)
     throws Exception {
     
+    // The edit is journaled from a copy, so emp is only changed once it is
+    // durable, and the journal may only compact once emp has been changed
+    int[] req = emp.requestedHours();
+    Employee edited = new Employee(emp.fileName(), emp.getPosition(),
+                                   emp.getPhone(), req[0], req[1],
+                                   emp.getLastSub(), emp.getComment(),
+                                   emp.availMask(PRF), emp.availMask(ALT));
+    edited.edit(position, phone);
+    
+    Metrics.Span span = Metrics.start("save.edit");
+    try {
+      journal.put(edited);
+      journal.commit();
+      span.stop();
+    }
+    catch(Exception e) {
+      journal.rollback();
+      throw e;
+    }
+    
     String oldPosition = emp.getPosition();
     emp.edit(position, phone);
-    FileWriter efw = new FileWriter("employees/" +emp.fileName());
-    PrintWriter empWriter = new PrintWriter(new BufferedWriter(efw));
-    empWriter.print(emp.fileData());
-    empWriter.close();
+    journal.maybeCompact(empList);
+    availIndex.update(emp);
+    blockCache.invalidate(emp);
     
-    if(!isHeldPosition(oldPosition))
-      posList.remove(oldPosition);
-    if(position != null && !position.equals("") && isNewPosition(position))
-      posList.add(position);
+    if(!oldPosition.equals(emp.getPosition())) {
+      removeFromPosition(emp, oldPosition);
+      addToPosition(emp);
+    }
+    
+    if(hasSchedule())
+      repairSchedule(emp);
   }
   
   
@@ -192,14 +396,32 @@ public class ScheduleMaker {
    * Removes one or more employees
    */
   public void removeEmployee(ArrayList<Employee> rList) throws Exception {
+    HashSet<Employee> rSet = new HashSet<Employee>(rList);
+    ArrayList<Employee> before = new ArrayList<Employee>(empList);
+    Metrics.Span span = Metrics.start("save.remove");
+    try {
+      for(int i = 0; i < rList.size(); i++)
+        journal.remove(rList.get(i));
+      // One pass over empList instead of one per removed employee
+      empList.removeAll(rSet);
+      journal.commit();
+      span.stop(rList.size());
+    }
+    catch(Exception e) {
+      journal.rollback();
+      empList.clear();
+      empList.addAll(before);
+      throw e;
+    }
+    journal.maybeCompact(empList);
+    
     Employee emp;
     for(int i = 0; i < rList.size(); i++) {
       emp = rList.get(i);
-      File empFile = new File("employees/" +emp.fileName());
-      empFile.delete();
-      empList.remove(emp);
-      if(!isHeldPosition(emp.getPosition()))
-        posList.remove(emp.getPosition());
+      availIndex.remove(emp);
+      blockCache.invalidate(emp);
+      empByName.remove(emp.getName());
+      removeFromPosition(emp, emp.getPosition());
     }
   }
   
@@ -209,153 +431,234 @@ public class ScheduleMaker {
    * Creates or updates the business hours file
    */
   public void writeBusinessHours(String[][] openClose) throws Exception {
-    FileWriter fw = new FileWriter("hours.dat");
+    // Parsed first so a bad time doesn't leave the file half written
+    int[][] times = new int[2][TimeSlots.WEEK_DAYS];
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      times[0][d] = TimeSlots.parse(openClose[0][d]);
+      times[1][d] = TimeSlots.parse(openClose[1][d]);
+    }
+    
+    FileWriter fw = new FileWriter(file(HOURS_FILE));
     PrintWriter writer = new PrintWriter(new BufferedWriter(fw));
-    for(int d = 0; d < 7; d++) {
-        writer.print(timeStrToInt(openClose[0][d]) +"\n");
-        writer.print(timeStrToInt(openClose[1][d]) +"\n");
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        writer.print(times[0][d] +"\n");
+        writer.print(times[1][d] +"\n");
     }
     writer.close();
     hasHoursFile = true;
     
     // Reread the new times and update the other time-dependent variables
     readHoursFile();
+    blockCache.setBusinessHours(openMask);
   }
   
   
   
   /**
-   * Create and export the MS Excel file that contains the work schedule
+   * Parses the constraints, one per line, and replaces the constraints file.
+   * Nothing is changed if any line is not a valid constraint
    */
-  public void export() throws Exception {
-    Workbook wb = new XSSFWorkbook();
-    CreationHelper helper = wb.getCreationHelper();
-    Sheet sheet = wb.createSheet("main");
-    ArrayList<Row> rows = new ArrayList<>();
-    
-    Cell tempCell;
-    CellStyle tempCStyle;
-    int row = 0;
-    
-    // Reused fonts
-    String defFont = "Arial";
-    short defFontSize = 12;
-    Font titleFont = wb.createFont();
-    titleFont.setFontHeightInPoints((short)(defFontSize*2));
-    titleFont.setFontName(defFont);
-    titleFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-    titleFont.setColor(IndexedColors.WHITE.getIndex());
-    Font posFont = wb.createFont();
-    posFont.setFontHeightInPoints((short)(defFontSize));
-    posFont.setFontName(defFont);
-    posFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-    posFont.setColor(IndexedColors.WHITE.getIndex());
-    Font regFont = wb.createFont();
-    regFont.setFontHeightInPoints(defFontSize);
-    regFont.setFontName(defFont);
-    regFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-    regFont.setColor(IndexedColors.BLACK.getIndex());
-    
-    // Create the title row
-    rows.add(sheet.createRow(row));
-    rows.get(row).createCell(0).setCellValue(
-      helper.createRichTextString("Weekly Work Schedule"));
-    tempCell = rows.get(row).getCell(0);
-    tempCStyle = wb.createCellStyle();
-    tempCStyle.setAlignment(CellStyle.ALIGN_CENTER);
-    tempCStyle.setFont(titleFont);
-    tempCStyle.setFillBackgroundColor(IndexedColors.DARK_BLUE.getIndex());
-    tempCStyle.setFillPattern(CellStyle.BIG_SPOTS);
-    tempCell.setCellStyle(tempCStyle);
-    rows.get(row).setHeight((short)(rows.get(row).getHeight()*2));
-    sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 8));
-    row++;
-    
-    // Row with column names
-    rows.add(sheet.createRow(row));
-    rows.get(row).createCell(0).setCellValue(
-      helper.createRichTextString("Name"));
-    rows.get(row).createCell(1).setCellValue(
-      helper.createRichTextString("Phone #"));
-    rows.get(row).createCell(2).setCellValue(
-      helper.createRichTextString("Mon"));
-    rows.get(row).createCell(3).setCellValue(
-      helper.createRichTextString("Tue"));
-    rows.get(row).createCell(4).setCellValue(
-      helper.createRichTextString("Wed"));
-    rows.get(row).createCell(5).setCellValue(
-      helper.createRichTextString("Thu"));
-    rows.get(row).createCell(6).setCellValue(
-      helper.createRichTextString("Fri"));
-    rows.get(row).createCell(7).setCellValue(
-      helper.createRichTextString("Sat"));
-    rows.get(row).createCell(8).setCellValue(
-      helper.createRichTextString("Sun"));
-    tempCStyle = wb.createCellStyle();
-    tempCStyle.setFont(regFont);
-    tempCStyle.setAlignment(CellStyle.ALIGN_CENTER);
-    tempCStyle.setFillBackgroundColor(IndexedColors.PALE_BLUE.getIndex());
-    for(int i = 0; i < 9; i++)
-      rows.get(row).getCell(i).setCellStyle(tempCStyle);
-    row++;
-    
-    // This will contain all the employees who hold the same position
-    ArrayList<Employee> posEmpsList;
+  public void writeConstraints(String text) throws Exception {
+    ConstraintSet parsed = ConstraintSet.parse(text);
+    parsed.save(file(ConstraintSet.FILE_NAME));
+    constraints = parsed;
+  }
+  
+  
+  
+  /**
+   * Replaces the demand file with the given staffing demand
+   */
+  public void writeDemand(StaffingDemand newDemand) throws Exception {
+    newDemand.save(file(StaffingDemand.FILE_NAME));
+    demand = newDemand.copy();
+  }
+  
+  
+  
+  /**
+   * Automatically assigns the week's shifts to every employee using their
+   * availability, requested hours, the business hours, the scheduling
+   * constraints, and the staffing demand
+   */
+  public void generate() throws Exception {
+    newSolver().run(null).apply();
+  }
+  
+  
+  
+  /**
+   * Fixes the current schedule after the employee's availability, requested
+   * hours, or position changed, rather than making a new one, so that the
+   * other employees keep the shifts they were already given
+   */
+  private void repairSchedule(Employee emp) {
+    Scheduler scheduler = new Scheduler(new RosterSnapshot(empList,
+                                                           openMask,
+                                                           constraints,
+                                                           demand,
+                                                           blockCache));
+    scheduler.repair(empList.indexOf(emp), coverCandidates(emp));
+    scheduler.apply();
+  }
+  
+  
+  
+  /**
+   * Marks, for each day of the period, the employees who are available for
+   * some slot of the employee's shift that day and so could cover for them
+   */
+  private Boolean[][] coverCandidates(Employee emp) {
+    HashMap<Employee, Integer> index = new HashMap<Employee, Integer>();
+    for(int i = 0; i < empList.size(); i++)
+      index.put(empList.get(i), i);
+    
+    Boolean[][] candidates = new Boolean[TimeSlots.NUM_DAYS][empList.size()];
+    ArrayList<Employee> found;
+    int start;
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+      Arrays.fill(candidates[d], false);
+      start = emp.getShiftStart(d);
+      found = availIndex.availableAny(d, start, start + emp.getShiftLength(d),
+                                      true);
+      for(int i = 0; i < found.size(); i++)
+        candidates[d][index.get(found.get(i))] = true;
+    }
+    return candidates;
+  }
+  
+  
+  
+  /**
+   * Returns true if shifts have been assigned to anyone
+   */
+  private Boolean hasSchedule() {
+    for(int i = 0; i < empList.size(); i++)
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+        if(empList.get(i).getShiftLength(d) != 0)
+          return true;
+    return false;
+  }
+  
+  
+  
+  /**
+   * Takes a snapshot of the employees, business hours, and constraints, and
+   * returns a solver that searches it on every core
+   */
+  private PortfolioSolver newSolver() {
+    RosterSnapshot snap = new RosterSnapshot(empList, openMask,
+                                             constraints, demand, blockCache);
+    return new PortfolioSolver(snap, Runtime.getRuntime().availableProcessors(),
+                               solveMillis);
+  }
+  
+  
+  
+  /**
+   * Takes a copy of everything needed to generate and export a schedule, so
+   * that the returned job can run on another thread while the employees are
+   * edited. Call this on the thread that owns the ScheduleMaker
+   */
+  public ScheduleJob newScheduleJob() {
+    ScheduleJob job = new ScheduleJob(this, newSolver(), getExportFileName());
     
-    // For each position that exists, write each employee's data
-    for(int i = 0; i < posList.size(); i++) {
-      // Create the row that displays the position title
-      rows.add(sheet.createRow(row));
-      rows.get(row).createCell(0).setCellValue(
-        helper.createRichTextString(posList.get(i)));
-      tempCell = rows.get(row).getCell(0);
-      tempCStyle = wb.createCellStyle();
-      tempCStyle.setAlignment(CellStyle.ALIGN_CENTER);
-      tempCStyle.setFont(posFont);
-      tempCStyle.setFillBackgroundColor(IndexedColors.PALE_BLUE.getIndex());
-      tempCStyle.setFillPattern(CellStyle.FINE_DOTS);
-      tempCell.setCellStyle(tempCStyle);
-      sheet.addMergedRegion(new CellRangeAddress(row, row, 0, 8));
-      row++;
-      
-      // Retrieve all the employees who hold the ith position
-      posEmpsList = getPosEmps(posList.get(i));
-      for(int j = 0; j < posEmpsList.size(); j++, row++) {
-        // Create the row with employee j's data
-        rows.add(sheet.createRow(row));
-        rows.get(row).createCell(0).setCellValue(
-          helper.createRichTextString(posEmpsList.get(j).displayName()));
-        rows.get(row).createCell(1).setCellValue(
-          helper.createRichTextString(posEmpsList.get(j).getPhone()));
-        tempCStyle = wb.createCellStyle();
-        tempCStyle.setFont(regFont);
-        tempCStyle.setAlignment(CellStyle.ALIGN_CENTER);
-        
-        // For each day of the week, write employee j's work hours for day k
-        for(int k = 0; k < 7; k++) {
-          rows.get(row).createCell(k+2).setCellValue(
-            helper.createRichTextString(posEmpsList.get(j).getAssignedHours(k)));
-          rows.get(row).getCell(k).setCellStyle(tempCStyle);
-        }
-        // Cells 0-6 have been stylized in the for loop above.
-        // Still need to stylize cells 7 and 8
-        rows.get(row).getCell(7).setCellStyle(tempCStyle);
-        rows.get(row).getCell(8).setCellStyle(tempCStyle);
+    HashMap<Employee, Integer> index = new HashMap<Employee, Integer>();
+    for(int i = 0; i < empList.size(); i++)
+      index.put(empList.get(i), i);
+    
+    ArrayList<Employee> holders;
+    int[] idx;
+    String[] names, phones;
+    for(int p = 0; p < posList.size(); p++) {
+      holders = getPosEmps(posList.get(p));
+      idx = new int[holders.size()];
+      names = new String[holders.size()];
+      phones = new String[holders.size()];
+      for(int j = 0; j < holders.size(); j++) {
+        idx[j] = index.get(holders.get(j));
+        names[j] = holders.get(j).displayName();
+        phones[j] = holders.get(j).getPhone();
       }
+      job.addPosition(posList.get(p), idx, names, phones);
     }
     
-    // Set column widths
-    int defW = sheet.getColumnWidth(0);
-    sheet.setColumnWidth(0, (int)(defW*1.9));
-    sheet.setColumnWidth(1, (int)(defW*2.0));
-    defW = sheet.getColumnWidth(8);
-    for(int i = 0; i <= 6; i++)
-      sheet.setColumnWidth(8-i, (int)(defW*1.8));
+    return job;
+  }
+  
+  
+  
+  /**
+   * Create and export the MS Excel file that contains the current work
+   * schedule
+   */
+  public void export() throws Exception {
+    ScheduleTable table = new ScheduleTable();
+    ArrayList<Employee> holders;
+    String[] row;
+    for(int p = 0; p < posList.size(); p++) {
+      table.addPosition(posList.get(p));
+      holders = getPosEmps(posList.get(p));
+      for(int j = 0; j < holders.size(); j++) {
+        row = table.addRow(holders.get(j).displayName(),
+                           holders.get(j).getPhone());
+        for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+          row[ScheduleTable.FIRST_DAY_COL + d] =
+            holders.get(j).getAssignedHours(d);
+      }
+    }
     
-    String fileName = "schedule_" +getFileDate() +".xlsx";
-    FileOutputStream writer = new FileOutputStream(fileName);
-    wb.write(writer);
-    writer.close();
+    export(table, getExportFileName(), null);
+  }
+  
+  
+  
+  /**
+   * Writes the schedule table to an MS Excel file, in the store's directory
+   * unless fileName is absolute. This only reads the table, so it can run on
+   * any thread. Progress is reported to the monitor, if not
+   * null, and the export stops with a CancellationException if it asks to
+   * cancel, leaving no partial file behind
+   */
+  public void export(ScheduleTable table, String fileName,
+                     TaskMonitor monitor) throws Exception {
+    Metrics.Span span = Metrics.start("export");
+    exporter().export(table, file(fileName), monitor);
+    span.stop(table.numEmployees());
+  }
+  
+  
+  
+  /**
+   * Loads the exporter and sets it up on a low priority background thread,
+   * so that the first export doesn't wait for it. Call this once the program
+   * is up and running; a failure is left for the export itself to report
+   */
+  public static void warmExporter() {
+    Thread warmer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          exporter().warm();
+        }
+        catch(Exception | LinkageError e) {
+          // The export fails the same way and reports it
+        }
+      }
+    }, "exporter-warmup");
+    warmer.setDaemon(true);
+    warmer.setPriority(Thread.MIN_PRIORITY);
+    warmer.start();
+  }
+  
+  
+  
+  /**
+   * Closes the journal, waiting for a roster file rewrite in progress to
+   * finish. Nothing can be saved afterwards
+   */
+  public void close() throws IOException {
+    journal.close();
   }
   
 //==============================================================================
@@ -365,20 +668,134 @@ public class ScheduleMaker {
     return hasHoursFile;
   }
   
+  public File getBaseDir() {
+    return baseDir;
+  }
+  
+  /**
+   * Sets how long generating a schedule searches for a better one
+   */
+  public void setSolveMillis(long millis) {
+    solveMillis = millis;
+  }
+  
+  /**
+   * Resolves a file name against the store's directory
+   */
+  private File file(String name) {
+    File f = new File(name);
+    return f.isAbsolute() ? f : new File(baseDir, name);
+  }
+  
+  /**
+   * Moves a file into the directory, creating the directory if needed
+   */
+  private static void moveAside(File f, File dir) throws IOException {
+    if(!dir.isDirectory() && !dir.mkdirs())
+      throw new IOException("can't create " +dir);
+    Files.move(f.toPath(), new File(dir, f.getName()).toPath());
+  }
+  
+  /**
+   * Returns the exporter, loading it by name the first time so that nothing
+   * it uses is loaded until a schedule is exported
+   */
+  private static synchronized ScheduleExporter exporter() throws Exception {
+    if(exporter == null) {
+      Metrics.Span span = Metrics.start("export.load");
+      exporter = (ScheduleExporter)Class.forName(EXPORTER_CLASS)
+                                        .getDeclaredConstructor()
+                                        .newInstance();
+      span.stop();
+    }
+    return exporter;
+  }
+  
   public Boolean hasNoEmployees() {
     return empList.size() == 0;
   }
   
+  /**
+   * Returns the problems found while loading that did not stop the program,
+   * such as employee files that could not be read
+   */
+  public ArrayList<String> getLoadWarnings() {
+    return loadWarnings;
+  }
+  
+  public ConstraintSet getConstraints() {
+    return constraints;
+  }
+  
+  /**
+   * Returns a copy of the staffing demand that can be edited and passed to
+   * writeDemand
+   */
+  public StaffingDemand getDemand() {
+    return demand.copy();
+  }
+  
+  /**
+   * Returns the current shifts compared with the staffing demand
+   */
+  public CoverageTable getCoverage() {
+    return new CoverageTable(empList, demand);
+  }
+  
+  /**
+   * Returns the positions held by at least one employee
+   */
+  public ArrayList<String> getPositions() {
+    return new ArrayList<String>(posList);
+  }
+  
   
   
   /**
    * Finds an Employee object using the name. Returns null if not found
    */
   public Employee getEmployee(String name) {
-    for(int i = 0; i < empList.size(); i++)
-      if(empList.get(i).getName().equals(name))
-        return empList.get(i);
-    return null;
+    return empByName.get(name);
+  }
+  
+  
+  
+  /**
+   * Returns the employees who have the availability type on day d at slot r
+   */
+  public ArrayList<Employee> getAvailable(int type, int d, int r) {
+    return availIndex.available(type, d, r);
+  }
+  
+  
+  
+  /**
+   * Returns the employees who can work every slot from (inclusive) to
+   * (exclusive) on day d, such as replacements for a call-out. ALT slots only
+   * count when allowAlt is true
+   */
+  public ArrayList<Employee> getAvailable(int d, int from, int to,
+                                          Boolean allowAlt) {
+    return availIndex.available(d, from, to, allowAlt);
+  }
+  
+  
+  
+  /**
+   * Returns the weekly mask of the slots during which the business is open.
+   * The array is shared and must not be modified
+   */
+  public long[] getOpenMasks() {
+    return openMask;
+  }
+  
+  
+  
+  /**
+   * Returns the slot -> employee availability index
+   */
+  public AvailabilityIndex getAvailIndex() {
+    return availIndex;
   }
   
   
@@ -395,93 +812,60 @@ public class ScheduleMaker {
   
   
   /**
-   * Takes an integer representation of time in 24-hour format and converts it
-   * into a String representation
+   * Checks if the position exists
    */
-  public String timeIntToStr(int time) {
-    if(time == HOURS_CLOSED)
-      return "Closed";
-    if(time == HOURS_24)
-      return "24 HR";
-    
-    String result;
-    String end;
-    int h = time/100;
-    int m = time%100;
-    
-    if(h < 12)
-      end = "AM";
-    else
-      end = "PM";
-    
-    if(h > 12)
-      h -= 12;
-    if(h == 0)
-      h = 12;
-    
-    result = Integer.toString(h);
-    result += ":";
-    
-    if(m == 0)
-      result += "00";
-    else
-      result += Integer.toString(m);
-    
-    return result + end;
+  private Boolean isNewPosition(String position) {
+    return !posEmps.containsKey(position);
   }
   
   
   
   /**
-   * Takes a String version of time and converts it into an integer version
+   * Checks if the position is currently held by an employee
    */
-  private int timeStrToInt(String time) {
-    if(time.equals("Closed"))
-      return HOURS_CLOSED;
-    if(time.equals("24 HR"))
-      return HOURS_24;
-    
-    int hours = 0;
-    int minutes;
-    
-    if(time.charAt(time.length()-2) == 'P' && !time.substring(0,2).equals("12"))
-      hours = 12;
-    
-    Scanner timeScan = new Scanner(time.substring(0, time.length()-3));
-    timeScan.useDelimiter(":");
-    
-    hours += timeScan.nextInt();
-    minutes = timeScan.nextInt();
-    
-    if(hours == 12 && time.charAt(time.length()-2) == 'A')
-      hours = 0;
-    
-    timeScan.close();
-    return hours*100 + minutes;
+  private Boolean isHeldPosition(String position) {
+    LinkedHashSet<Employee> holders = posEmps.get(position);
+    return holders != null && holders.size() > 0;
   }
   
   
   
   /**
-   * Checks if the position exists
+   * Records that the employee holds their position, adding the position to
+   * posList if they are its first holder
    */
-  private Boolean isNewPosition(String position) {
-    for(int i = 0; i < posList.size(); i++) 
-      if(position.equals(posList.get(i)))
-        return false;
-    return true;
+  private void addToPosition(Employee emp) {
+    if(isNewPosition(emp.getPosition())) {
+      posEmps.put(emp.getPosition(), new LinkedHashSet<Employee>());
+      posList.add(emp.getPosition());
+    }
+    posEmps.get(emp.getPosition()).add(emp);
   }
   
   
   
   /**
-   * Checks if the position is currently held by an employee
+   * Records that the employee no longer holds the position, removing the
+   * position from posList if nobody else holds it
    */
-  private Boolean isHeldPosition(String position) {
-    for(int i = 0; i < empList.size(); i++)
-      if(empList.get(i).getPosition().equals(position))
-        return true;
-    return false;
+  private void removeFromPosition(Employee emp, String position) {
+    LinkedHashSet<Employee> holders = posEmps.get(position);
+    if(holders == null)
+      return;
+    holders.remove(emp);
+    if(!isHeldPosition(position)) {
+      posEmps.remove(position);
+      posList.remove(position);
+    }
+  }
+  
+  
+  
+  /**
+   * Returns the name of the Excel file exported today
+   */
+  private String getExportFileName() {
+    return "schedule_" +getFileDate() +".xlsx";
   }
   
   
@@ -509,10 +893,9 @@ public class ScheduleMaker {
    * Returns a list of employees who hold the position
    */
   private ArrayList<Employee> getPosEmps(String position) {
-    ArrayList<Employee> list = new ArrayList<>();
-    for(int i = 0; i < empList.size(); i++)
-      if(empList.get(i).getPosition().equals(position))
-        list.add(empList.get(i));
-    return list;
+    LinkedHashSet<Employee> holders = posEmps.get(position);
+    if(holders == null)
+      return new ArrayList<Employee>();
+    return new ArrayList<Employee>(holders);
   }
 }
\ No newline at end of file
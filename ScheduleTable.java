@@ -0,0 +1,75 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ * 
+ * Description:
+ *    This class holds the text of the exported schedule: every position, and
+ *    under each position one row per employee with their name, phone number,
+ *    and the assigned hours for each day of the period.
+ *
+ *    It is a plain copy of the data, so it can be written out on a background
+ *    thread while the employees are being edited on the GUI.
+ */
+
+import java.util.ArrayList;
+
+public class ScheduleTable {
+  // Column positions in each employee row
+  public static final int NAME_COL = 0,
+                          PHONE_COL = 1,
+                          FIRST_DAY_COL = 2,
+                          NUM_COLS = FIRST_DAY_COL + TimeSlots.NUM_DAYS;
+  
+  private ArrayList<String>             positions;
+  private ArrayList<ArrayList<String[]>> rows;
+  private int                           numEmps;
+  
+//==============================================================================
+  public ScheduleTable() {
+    positions = new ArrayList<String>();
+    rows = new ArrayList<ArrayList<String[]>>();
+    numEmps = 0;
+  }
+  
+  
+  
+  /**
+   * Starts a new position; rows added afterwards belong to it
+   */
+  public void addPosition(String position) {
+    positions.add(position);
+    rows.add(new ArrayList<String[]>());
+  }
+  
+  
+  
+  /**
+   * Adds a row to the last position and returns it so the caller can fill in
+   * the days
+   */
+  public String[] addRow(String name, String phone) {
+    String[] row = new String[NUM_COLS];
+    row[NAME_COL] = name;
+    row[PHONE_COL] = phone;
+    rows.get(rows.size()-1).add(row);
+    numEmps++;
+    return row;
+  }
+  
+  
+  
+  public int numPositions() {
+    return positions.size();
+  }
+  
+  public String getPosition(int p) {
+    return positions.get(p);
+  }
+  
+  public ArrayList<String[]> getRows(int p) {
+    return rows.get(p);
+  }
+  
+  public int numEmployees() {
+    return numEmps;
+  }
+}
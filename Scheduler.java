@@ -0,0 +1,833 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class is the automatic scheduling engine. It takes a copy of every
+ *    employee's availability and requested hours along with the business
+ *    hours, and builds a weekly assignment of one shift per day at most.
+ *
+ *    Availability is kept as weekly slot masks (see SlotMask) so that
+ *    checking whether a whole shift fits is a single window read and compare
+ *    rather than a loop over the slots.
+ *
+ *    The period is one continuous timeline of NUM_DAYS days that wraps from
+ *    its last day back to its first, so a shift may run past midnight into
+ *    the next day. A shift belongs to the day it starts on; its start is
+ *    within that day and it may end up to MAX_SHIFT slots into the next one.
+ *    Availability and business hours repeat every week of the period, so day
+ *    d reads them from weekday d % 7.
+ *
+ *    The business's scheduling constraints, compiled into a ConstraintChecker,
+ *    rule out shifts that would break a limit and steer the second phase
+ *    towards slots that are below a minimum headcount.
+ *
+ *    After the greedy phases, a simulated annealing search improves the
+ *    schedule one shift at a time. A move only changes one employee's shift on
+ *    one day, so its effect on the score is worked out from that employee's
+ *    hours and that day's slots instead of rescoring the whole week.
+ *
+ *    When one employee's availability or requested hours change after a
+ *    schedule has been made, repair() fixes just the shifts affected by the
+ *    change instead of making a new schedule.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+
+public class Scheduler {
+  // Shift length limits, in slots
+  public static final int MIN_SHIFT = TimeSlots.slots(3),
+                          MAX_SHIFT = TimeSlots.slots(8);
+
+  // Weights used when picking between candidate shifts. Each slot short of
+  // an employee's minimum hours outweighs anything a slot can gain elsewhere
+  public static final int PRF_WEIGHT = 4,
+                          ALT_WEIGHT = 1;
+  private static final int COVER_WEIGHT = 3,
+                           GAP_WEIGHT = 64,
+                           UNDER_WEIGHT = 1024;
+
+  // Search moves made per employee, and the most made in one run
+  private static final long MOVES_PER_EMP = 20000,
+                            MAX_MOVES = 4000000;
+
+  // Moves between checking the time and progress, and between trading
+  // assignments with the rest of the portfolio
+  private static final int SYNC_MOVES = 1 << 12,
+                           SHARE_MOVES = 1 << 18;
+
+  // Annealing temperatures at the start and end of the search
+  private static final double START_TEMP = 40.0,
+                              END_TEMP = 0.5;
+
+  // Day mask with every day of the period
+  private static final int ALL_DAYS = (1 << TimeSlots.NUM_DAYS) - 1;
+
+  // Progress is reported in steps: the greedy phases take up to two rounds
+  // per day, and the search gets the remaining steps
+  private static final int GREEDY_STEPS = 2*TimeSlots.NUM_DAYS,
+                           PROGRESS_STEPS = GREEDY_STEPS + 56;
+
+  private RosterSnapshot snap;
+  private int numEmps;
+
+  // Shared with the snapshot, never modified. Weekly masks
+  private long[][] prfMask,
+                   altMask,
+                   usableMask;
+  private int[]    minSlots,
+                   maxSlots;
+  private long[]   openMask;
+
+  // Per employee, every shift they could be given each day
+  private ShiftBlockCache.Blocks[] blocks;
+
+  // Slots assigned to each employee
+  private int[] assigned;
+
+  // Result of the last run
+  private int[][] shiftStart,
+                  shiftLength;
+
+  // Number of employees working each slot of the period
+  private int[] coverage;
+
+  // Compiled scheduling constraints, or null if there are none
+  private ConstraintChecker checker;
+
+  // Search settings
+  private long moves,
+               seed,
+               deadline;
+
+  // The portfolio this scheduler is part of, or null if it runs alone
+  private PortfolioSolver portfolio;
+
+//==============================================================================
+  /**
+   * Takes a copy of everything the engine needs so that run() does not touch
+   * the Employee objects
+   */
+  public Scheduler(ArrayList<Employee> empList, int[][] openCloseInt) {
+    this(new RosterSnapshot(empList, openMasks(openCloseInt), null, null,
+                            null));
+  }
+
+
+
+  /**
+   * Schedules the employees in the snapshot. Any number of Schedulers can
+   * share one snapshot
+   */
+  public Scheduler(RosterSnapshot snap) {
+    this.snap = snap;
+    numEmps = snap.numEmployees();
+    prfMask = snap.getPrfMasks();
+    altMask = snap.getAltMasks();
+    usableMask = snap.getUsableMasks();
+    minSlots = snap.getMinSlots();
+    maxSlots = snap.getMaxSlots();
+    openMask = snap.getOpenMasks();
+    blocks = snap.getBlocks();
+    checker = snap.newChecker();
+
+    assigned = new int[numEmps];
+    shiftStart = new int[numEmps][TimeSlots.NUM_DAYS];
+    shiftLength = new int[numEmps][TimeSlots.NUM_DAYS];
+    coverage = new int[TimeSlots.PERIOD_SLOTS];
+
+    moves = defaultMoves(numEmps);
+    seed = 1;
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Builds the weekly assignment.
+   *
+   * The first phase hands out shifts round-robin until every employee reaches
+   * their minimum hours, preferring PRF slots and slots that few others are
+   * covering. The second phase fills whatever open slots are still uncovered
+   * using employees who have room left before their maximum hours. The
+   * search then improves on the result.
+   */
+  public void run() {
+    run(null);
+  }
+
+
+
+  /**
+   * Same as run(), but reports progress to the monitor and stops with a
+   * CancellationException if the monitor asks to cancel
+   */
+  public void run(TaskMonitor monitor) {
+    for(int e = 0; e < numEmps; e++) {
+      Arrays.fill(shiftLength[e], 0);
+      assigned[e] = 0;
+    }
+    Arrays.fill(coverage, 0);
+    if(checker != null)
+      checker.reset();
+
+    // Each phase makes at most NUM_DAYS rounds since each round gives an
+    // employee one more day of work
+    Integer[] order = placementOrder();
+    Boolean progress = true;
+    for(int round = 0; progress; round++) {
+      checkIn(monitor, round, PROGRESS_STEPS);
+      progress = false;
+      for(int i = 0; i < numEmps; i++)
+        if(assigned[order[i]] < minSlots[order[i]])
+          progress |= placeShift(order[i], minSlots[order[i]], false,
+                                 ALL_DAYS);
+    }
+
+    progress = true;
+    for(int round = TimeSlots.NUM_DAYS; progress; round++) {
+      checkIn(monitor, Math.min(round, GREEDY_STEPS), PROGRESS_STEPS);
+      progress = false;
+      for(int i = 0; i < numEmps; i++)
+        if(assigned[order[i]] < maxSlots[order[i]])
+          progress |= placeShift(order[i], maxSlots[order[i]], true,
+                                 ALL_DAYS);
+    }
+
+    improve(monitor);
+
+    if(monitor != null)
+      monitor.progress(1, 1);
+  }
+
+
+
+  /**
+   * Repairs the schedule in the snapshot after employee e's availability,
+   * requested hours, or position changed, keeping as much of it as possible.
+   *
+   * e's shifts that no longer fit are cut down to the part that still does,
+   * or dropped, and e is brought back within their requested hours. The slots
+   * e stopped covering are then filled by giving shifts to employees who are
+   * off that day. Nobody else's existing shifts are changed
+   */
+  public void repair(int e) {
+    repair(e, null);
+  }
+
+
+
+  /**
+   * Same as repair(e), but on day d only the employees marked in
+   * candidates[d] are tried for the slots e stopped covering. Those slots are
+   * always within e's old shifts, so it is enough to mark the employees who
+   * are available for some slot of e's old shift that day, which ScheduleMaker
+   * looks up in its AvailabilityIndex instead of trying the whole roster
+   */
+  public void repair(int e, Boolean[][] candidates) {
+    loadShifts(snap.getShiftStarts(), snap.getShiftLengths());
+    long[] lost = SlotMask.create(TimeSlots.PERIOD_SLOTS);
+    long keep;
+    int start, len;
+
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+      start = shiftStart[e][d];
+      len = shiftLength[e][d];
+      if(len == 0)
+        continue;
+
+      // Dropping the shift first lets the constraints judge what's left of
+      // it. keep is relative to the shift's start
+      keep = longestRun(window(usableMask[e], d, start, len));
+      moveShift(e, d, 0, 0);
+      if(Long.bitCount(keep) < MIN_SHIFT ||
+         moveShift(e, d, start + Long.numberOfTrailingZeros(keep),
+                   Long.bitCount(keep)) == Long.MIN_VALUE)
+        keep = 0;
+      for(int r = 0; r < len; r++)
+        if((keep >>> r & 1L) == 0)
+          SlotMask.set(lost, cell(d, start+r), true);
+    }
+
+    // Past the maximum hours, cut down or drop the shifts worth the least
+    int worst, excess;
+    while(assigned[e] > maxSlots[e]) {
+      worst = -1;
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+        if(shiftLength[e][d] != 0 && (worst < 0 ||
+           shiftValue(e, d, shiftStart[e][d], shiftLength[e][d]) <
+           shiftValue(e, worst, shiftStart[e][worst], shiftLength[e][worst])))
+          worst = d;
+
+      start = shiftStart[e][worst];
+      len = shiftLength[e][worst];
+      excess = assigned[e] - maxSlots[e];
+      moveShift(e, worst, 0, 0);
+      if(len-excess >= MIN_SHIFT)
+        moveShift(e, worst, start, len-excess);
+      for(int r = start+shiftLength[e][worst]; r < start+len; r++)
+        SlotMask.set(lost, cell(worst, r), true);
+    }
+
+    while(assigned[e] < minSlots[e] &&
+          placeShift(e, minSlots[e], false, ALL_DAYS));
+
+    Integer[] order = placementOrder();
+    int f;
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+      for(int i = 0; i < numEmps && hasLostGap(lost, d); i++) {
+        f = order[i];
+        if(f != e && assigned[f] < maxSlots[f]
+           && (candidates == null || candidates[d][f]))
+          placeShift(f, maxSlots[f], true, 1 << d);
+      }
+  }
+
+
+
+  /**
+   * Sets how many moves the search makes (0 skips it) and the seed of its
+   * random choices. Runs with the same settings give the same schedule
+   */
+  public void setSearch(long moves, long seed) {
+    this.moves = moves;
+    this.seed = seed;
+  }
+
+
+
+  /**
+   * Makes the search stop at the deadline (a System.nanoTime() value) and
+   * trade its best assignment with the rest of the portfolio as it goes. Use
+   * PortfolioSolver::run
+   */
+  void joinPortfolio(PortfolioSolver portfolio, long deadline) {
+    this.portfolio = portfolio;
+    this.deadline = deadline;
+  }
+
+
+
+  /**
+   * Returns the score of the current assignment, higher being better. The
+   * search only ever adds up changes to this score
+   */
+  public long score() {
+    long total = 0;
+    for(int e = 0; e < numEmps; e++) {
+      total -= UNDER_WEIGHT*Math.max(0, minSlots[e]-assigned[e]);
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+        total += shiftValue(e, d, shiftStart[e][d], shiftLength[e][d]);
+    }
+
+    int c;
+    for(int i = 0; i < coverage.length; i++) {
+      c = coverage[i];
+      total += (c > 0 ? GAP_WEIGHT : 0) - COVER_WEIGHT*c*(c-1)/2;
+    }
+
+    if(checker != null)
+      total -= GAP_WEIGHT*checker.deficit();
+    return total;
+  }
+
+
+
+  public int getShiftStart(int e, int d) {
+    return shiftStart[e][d];
+  }
+
+
+
+  public int getShiftLength(int e, int d) {
+    return shiftLength[e][d];
+  }
+
+
+
+  /**
+   * Copies the result of the last run into the Employee objects
+   */
+  public void apply() {
+    for(int e = 0; e < numEmps; e++)
+      snap.getEmployees().get(e).setShifts(shiftStart[e], shiftLength[e]);
+  }
+
+
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Returns the number of moves the search makes by default for a roster of
+   * numEmps employees
+   */
+  public static long defaultMoves(int numEmps) {
+    return Math.min(MOVES_PER_EMP*numEmps, MAX_MOVES);
+  }
+
+
+
+  /**
+   * Returns a weekly mask of the slots during which the business is open. A
+   * closing time at or before the opening time keeps the business open past
+   * midnight until the closing time on the next day, and Sunday's overnight
+   * hours carry over into Monday.
+   */
+  public static long[] openMasks(int[][] openCloseInt) {
+    long[] mask = SlotMask.week();
+    int open, close, from, to, base;
+
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      open = openCloseInt[0][d];
+      close = openCloseInt[1][d];
+      base = d*TimeSlots.SLOTS_PER_DAY;
+      if(open == ScheduleMaker.HOURS_CLOSED)
+        continue;
+      if(open == ScheduleMaker.HOURS_24) {
+        SlotMask.setRange(mask, TimeSlots.WEEK_SLOTS, base,
+                          base + TimeSlots.SLOTS_PER_DAY);
+        continue;
+      }
+
+      from = TimeSlots.toSlot(open);
+      to = TimeSlots.toSlot(close);
+      if(to <= from)
+        to += TimeSlots.SLOTS_PER_DAY;
+      SlotMask.setRange(mask, TimeSlots.WEEK_SLOTS, base+from, base+to);
+    }
+    return mask;
+  }
+
+
+
+  /**
+   * Returns the index in the period of slot r counted from the start of day
+   * d. r may run past the end of the day, and past the end of the period
+   * back to its start
+   */
+  public static int cell(int d, int r) {
+    int i = d*TimeSlots.SLOTS_PER_DAY + r;
+    return (i < TimeSlots.PERIOD_SLOTS) ? i : i - TimeSlots.PERIOD_SLOTS;
+  }
+
+
+
+  /**
+   * Returns len slots of the weekly mask from slot start of day d on, with
+   * slot start in bit 0
+   */
+  public static long window(long[] mask, int d, int start, int len) {
+    return SlotMask.window(mask, TimeSlots.WEEK_SLOTS,
+                           TimeSlots.weekday(d)*TimeSlots.SLOTS_PER_DAY + start,
+                           len);
+  }
+
+
+
+  /**
+   * Returns a mask with the bits from (inclusive) to (exclusive) set
+   */
+  public static long rangeMask(int from, int to) {
+    if(to <= from)
+      return 0L;
+    long bits = (to-from >= 64) ? -1L : (1L << (to-from)) - 1;
+    return bits << from;
+  }
+
+
+
+  /**
+   * Reports progress to the monitor and stops if it asks to cancel
+   */
+  private static void checkIn(TaskMonitor monitor, int done, int total) {
+    if(monitor == null)
+      return;
+    if(monitor.isCancelled())
+      throw new CancellationException();
+    monitor.progress(Math.min(done, total), total);
+  }
+
+
+
+  /**
+   * Employees with the fewest usable slots go first since they have the least
+   * freedom in where their shifts can go
+   */
+  private Integer[] placementOrder() {
+    final int[] usable = new int[numEmps];
+    Integer[] order = new Integer[numEmps];
+    for(int e = 0; e < numEmps; e++) {
+      order[e] = e;
+      for(int w = 0; w < usableMask[e].length; w++)
+        usable[e] += Long.bitCount(usableMask[e][w]);
+    }
+
+    Arrays.sort(order, new java.util.Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return usable[a] - usable[b];
+      }
+    });
+    return order;
+  }
+
+
+
+  /**
+   * Gives employee e one more shift on a day they are not yet working, out of
+   * the days in the days mask (bit d for day d), moving them towards the
+   * target number of slots. When onlyGaps is true, the shift
+   * must cover at least one open slot nobody else is working, or one that is
+   * below a minimum headcount.
+   *
+   * Returns false if no shift could be placed
+   */
+  private Boolean placeShift(int e, int target, Boolean onlyGaps, int days) {
+    int len = Math.min(target-assigned[e], MAX_SHIFT);
+    if(len < MIN_SHIFT) {
+      // A short top-up is only worth it if it doesn't go past the maximum
+      if(maxSlots[e]-assigned[e] < MIN_SHIFT)
+        return false;
+      len = MIN_SHIFT;
+    }
+
+    int bestDay = -1, bestStart = -1, bestLen = 0;
+    long bestScore = Long.MIN_VALUE;
+    long score;
+    int[] dayBlocks;
+    int s, gaps;
+
+    for(; len >= MIN_SHIFT && bestDay < 0; len--)
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+        if(shiftLength[e][d] != 0 || (days >>> d & 1) == 0)
+          continue;
+
+        dayBlocks = blocks[e].get(d);
+        for(int i = blocks[e].first(d, len); i < blocks[e].first(d, len-1);
+            i++) {
+          s = ShiftBlockCache.start(dayBlocks[i]);
+          if(overlapsNeighbor(e, d, s, len))
+            continue;
+          if(checker != null &&
+             !checker.canAssign(e, d, s, len, shiftStart, shiftLength))
+            continue;
+
+          score = ShiftBlockCache.value(dayBlocks[i]);
+          gaps = 0;
+          for(int r = s; r < s+len; r++) {
+            score -= COVER_WEIGHT*coverage[cell(d, r)];
+            if(coverage[cell(d, r)] == 0)
+              gaps++;
+          }
+          if(checker != null)
+            gaps += checker.shortfall(e, d, s, len);
+          score += GAP_WEIGHT*gaps;
+
+          if(onlyGaps && gaps == 0)
+            continue;
+          if(score > bestScore) {
+            bestScore = score;
+            bestDay = d;
+            bestStart = s;
+            bestLen = len;
+          }
+        }
+      }
+
+    if(bestDay < 0)
+      return false;
+
+    shiftStart[e][bestDay] = bestStart;
+    shiftLength[e][bestDay] = bestLen;
+    assigned[e] += bestLen;
+    for(int r = bestStart; r < bestStart+bestLen; r++)
+      coverage[cell(bestDay, r)]++;
+    if(checker != null)
+      checker.assign(e, bestDay, bestStart, bestLen);
+    return true;
+  }
+
+
+
+  /**
+   * Simulated annealing over single-shift moves: drop a shift, nudge its
+   * start and length, or put one of the employee's blocks in its place. Worse moves are
+   * sometimes accepted, less often as the search cools down, and the best
+   * assignment seen is kept.
+   *
+   * The search cools down over its moves or, in a portfolio, by the deadline,
+   * whichever comes first. In a portfolio, a search that has stopped finding
+   * better assignments picks up from the best one any search has found
+   */
+  private void improve(TaskMonitor monitor) {
+    if(numEmps == 0 || moves <= 0)
+      return;
+
+    Metrics.Span span = Metrics.start("solve.search");
+    SplittableRandom rnd = new SplittableRandom(seed);
+    int[][] bestStart = new int[numEmps][TimeSlots.NUM_DAYS];
+    int[][] bestLength = new int[numEmps][TimeSlots.NUM_DAYS];
+    saveShifts(bestStart, bestLength);
+    long current = score();
+    long best = current;
+    long lastShared = best;
+
+    long began = System.nanoTime();
+    double done = 0;
+    double temp = START_TEMP;
+    int e, d, oldStart, oldLen, start, len, block;
+    int[] dayBlocks;
+    long delta;
+
+    long m;
+    for(m = 0; done < 1; m++) {
+      if((m & SYNC_MOVES-1) == 0) {
+        done = (double)m/moves;
+        if(deadline != 0)
+          done = Math.max(done, (double)(System.nanoTime()-began)
+                                /(deadline-began));
+        temp = START_TEMP*Math.pow(END_TEMP/START_TEMP, Math.min(done, 1));
+        checkIn(monitor, GREEDY_STEPS + (int)((PROGRESS_STEPS-GREEDY_STEPS)
+                *Math.min(done, 1)), PROGRESS_STEPS);
+
+        if(portfolio != null && m != 0 && (m & SHARE_MOVES-1) == 0) {
+          portfolio.offer(best, bestStart, bestLength);
+          if(best == lastShared && portfolio.bestScore() > best) {
+            best = portfolio.copyBest(bestStart, bestLength);
+            loadShifts(bestStart, bestLength);
+            current = best;
+          }
+          lastShared = best;
+        }
+      }
+
+      e = rnd.nextInt(numEmps);
+      d = rnd.nextInt(TimeSlots.NUM_DAYS);
+      dayBlocks = blocks[e].get(d);
+      if(dayBlocks.length == 0)
+        continue;
+
+      oldStart = shiftStart[e][d];
+      oldLen = shiftLength[e][d];
+      switch(oldLen == 0 ? 2 : rnd.nextInt(4)) {
+        case 0:
+          start = 0;
+          len = 0;
+          break;
+        case 1:
+          start = oldStart + rnd.nextInt(5) - 2;
+          len = oldLen + rnd.nextInt(5) - 2;
+          break;
+        default:
+          block = dayBlocks[rnd.nextInt(dayBlocks.length)];
+          start = ShiftBlockCache.start(block);
+          len = ShiftBlockCache.length(block);
+      }
+
+      if(len != 0 && !fits(e, d, start, len))
+        continue;
+      if(len == oldLen && start == oldStart)
+        continue;
+      if(assigned[e] - oldLen + len > maxSlots[e])
+        continue;
+
+      delta = moveShift(e, d, start, len);
+      if(delta == Long.MIN_VALUE)
+        continue;
+
+      if(delta >= 0 || rnd.nextDouble() < Math.exp(delta/temp)) {
+        current += delta;
+        if(current > best) {
+          best = current;
+          saveShifts(bestStart, bestLength);
+        }
+      }
+      else
+        moveShift(e, d, oldStart, oldLen);
+    }
+
+    loadShifts(bestStart, bestLength);
+    if(portfolio != null)
+      portfolio.offer(best, bestStart, bestLength);
+    span.stop(m);
+  }
+
+
+
+  /**
+   * Checks that the shift is within the length limits, starts on day d, only
+   * covers open slots that employee e is available for, and doesn't overlap
+   * e's shifts on the days before and after
+   */
+  private Boolean fits(int e, int d, int start, int len) {
+    if(len < MIN_SHIFT || len > MAX_SHIFT || start < 0 ||
+       start >= TimeSlots.SLOTS_PER_DAY)
+      return false;
+    return window(usableMask[e], d, start, len) == rangeMask(0, len)
+           && !overlapsNeighbor(e, d, start, len);
+  }
+
+
+
+  /**
+   * Checks if a shift on day d would overlap the part of e's shift on the day
+   * before that runs past midnight, or run past midnight into e's shift on
+   * the day after
+   */
+  private Boolean overlapsNeighbor(int e, int d, int start, int len) {
+    int prev = (d + TimeSlots.NUM_DAYS-1) % TimeSlots.NUM_DAYS;
+    int next = (d+1) % TimeSlots.NUM_DAYS;
+    if(shiftLength[e][prev] != 0 && shiftStart[e][prev] + shiftLength[e][prev]
+       - TimeSlots.SLOTS_PER_DAY > start)
+      return true;
+    return shiftLength[e][next] != 0 &&
+           start+len - TimeSlots.SLOTS_PER_DAY > shiftStart[e][next];
+  }
+
+
+
+  /**
+   * Replaces employee e's shift on day d (len 0 meaning no shift) and returns
+   * the change in score. If the new shift breaks a constraint, nothing is
+   * changed and Long.MIN_VALUE is returned
+   */
+  private long moveShift(int e, int d, int start, int len) {
+    int oldStart = shiftStart[e][d];
+    int oldLen = shiftLength[e][d];
+    long delta = shiftValue(e, d, start, len)
+                 - shiftValue(e, d, oldStart, oldLen);
+
+    delta += UNDER_WEIGHT*(Math.max(0, minSlots[e]-assigned[e])
+             - Math.max(0, minSlots[e]-(assigned[e]-oldLen+len)));
+
+    if(oldLen != 0) {
+      shiftLength[e][d] = 0;
+      for(int r = oldStart; r < oldStart+oldLen; r++)
+        delta -= slotGain(--coverage[cell(d, r)]);
+      if(checker != null) {
+        checker.unassign(e, d, oldStart, oldLen);
+        delta -= GAP_WEIGHT*checker.shortfall(e, d, oldStart, oldLen);
+      }
+    }
+
+    if(len != 0) {
+      if(checker != null) {
+        if(!checker.canAssign(e, d, start, len, shiftStart, shiftLength)) {
+          if(oldLen != 0) {
+            for(int r = oldStart; r < oldStart+oldLen; r++)
+              coverage[cell(d, r)]++;
+            checker.assign(e, d, oldStart, oldLen);
+            shiftLength[e][d] = oldLen;
+          }
+          return Long.MIN_VALUE;
+        }
+        delta += GAP_WEIGHT*checker.shortfall(e, d, start, len);
+        checker.assign(e, d, start, len);
+      }
+      for(int r = start; r < start+len; r++)
+        delta += slotGain(coverage[cell(d, r)]++);
+    }
+
+    shiftStart[e][d] = start;
+    shiftLength[e][d] = len;
+    assigned[e] += len - oldLen;
+    return delta;
+  }
+
+
+
+  /**
+   * Returns a mask of the longest run of consecutive bits set in the mask
+   */
+  private static long longestRun(long mask) {
+    long best = 0L, run;
+    int from, len;
+    while(mask != 0) {
+      from = Long.numberOfTrailingZeros(mask);
+      len = Long.numberOfTrailingZeros(~(mask >>> from));
+      run = rangeMask(from, from+len);
+      if(Long.bitCount(run) > Long.bitCount(best))
+        best = run;
+      mask &= ~run;
+    }
+    return best;
+  }
+
+
+
+  /**
+   * Checks if any slot in the period mask lost that a shift starting on day d
+   * could reach is open and nobody is working it
+   */
+  private Boolean hasLostGap(long[] lost, int d) {
+    int cell;
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY + MAX_SHIFT; r++) {
+      cell = cell(d, r);
+      if(SlotMask.get(lost, cell) && coverage[cell] == 0 &&
+         SlotMask.get(openMask, cell % TimeSlots.WEEK_SLOTS))
+        return true;
+    }
+    return false;
+  }
+
+
+
+  /**
+   * Score of the PRF and ALT slots a shift covers
+   */
+  private long shiftValue(int e, int d, int start, int len) {
+    if(len == 0)
+      return 0;
+    return PRF_WEIGHT*Long.bitCount(window(prfMask[e], d, start, len))
+           + ALT_WEIGHT*Long.bitCount(window(altMask[e], d, start, len));
+  }
+
+
+
+  /**
+   * Change in score from one more employee working a slot that c employees
+   * are already working
+   */
+  private static long slotGain(int c) {
+    return (c == 0 ? GAP_WEIGHT : 0) - COVER_WEIGHT*c;
+  }
+
+
+
+  private void saveShifts(int[][] start, int[][] length) {
+    for(int e = 0; e < numEmps; e++) {
+      System.arraycopy(shiftStart[e], 0, start[e], 0, TimeSlots.NUM_DAYS);
+      System.arraycopy(shiftLength[e], 0, length[e], 0, TimeSlots.NUM_DAYS);
+    }
+  }
+
+
+
+  /**
+   * Makes the saved shifts the current assignment, recounting the hours,
+   * coverage, and constraint counts
+   */
+  private void loadShifts(int[][] start, int[][] length) {
+    Arrays.fill(coverage, 0);
+    if(checker != null)
+      checker.reset();
+
+    for(int e = 0; e < numEmps; e++) {
+      assigned[e] = 0;
+      for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+        shiftStart[e][d] = start[e][d];
+        shiftLength[e][d] = length[e][d];
+        assigned[e] += length[e][d];
+        for(int r = start[e][d]; r < start[e][d]+length[e][d]; r++)
+          coverage[cell(d, r)]++;
+        if(checker != null && length[e][d] != 0)
+          checker.assign(e, d, start[e][d], length[e][d]);
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class works out, for each employee and weekday, every shift the
+ *    employee could be given: each run of MIN_SHIFT to MAX_SHIFT consecutive
+ *    slots that they are available for and the business is open, starting on
+ *    that day and possibly running past midnight. Availability repeats every
+ *    week, so day d of the period uses the blocks of weekday d % 7. The shifts
+ *    ("blocks") are kept until the employee's availability or the business
+ *    hours change, so the scheduler doesn't rebuild them on every run.
+ *
+ *    Each block is packed into an int (start, length, and its score from the
+ *    PRF and ALT slots it covers). A day's blocks are grouped by length,
+ *    longest first, and ranked best first within each length.
+ *
+ *    The cache belongs to the thread that owns the ScheduleMaker. The Blocks
+ *    it hands out are never changed, so they can be shared with Schedulers on
+ *    other threads.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class ShiftBlockCache {
+  /**
+   * Every block of one employee, per weekday
+   */
+  public static class Blocks {
+    private final int[][] blocks,
+                          lengthStart;
+
+    private Blocks(int[][] blocks, int[][] lengthStart) {
+      this.blocks = blocks;
+      this.lengthStart = lengthStart;
+    }
+
+    /**
+     * Returns the blocks of day d of the period. The array must not be
+     * modified
+     */
+    public int[] get(int d) {
+      return blocks[TimeSlots.weekday(d)];
+    }
+
+    /**
+     * Returns the index of day d's first block of length len. The blocks of
+     * that length end where those of length len-1 start
+     */
+    public int first(int d, int len) {
+      return lengthStart[TimeSlots.weekday(d)][Scheduler.MAX_SHIFT - len];
+    }
+  }
+
+  // Bits needed for any start slot and any shift length
+  private static final int START_BITS =
+                             32 - Integer.numberOfLeadingZeros(
+                                    TimeSlots.SLOTS_PER_DAY - 1),
+                           LENGTH_BITS =
+                             32 - Integer.numberOfLeadingZeros(
+                                    Scheduler.MAX_SHIFT);
+
+  private HashMap<Employee, Blocks> cache;
+
+  // Weekly mask of the open slots
+  private long[]                    openMask;
+
+//==============================================================================
+  /**
+   * openMask is weekly, from Scheduler::openMasks
+   */
+  public ShiftBlockCache(long[] openMask) {
+    cache = new HashMap<Employee, Blocks>();
+    setBusinessHours(openMask);
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Returns the employee's blocks, working them out if they aren't cached
+   */
+  public Blocks get(Employee emp) {
+    Blocks b = cache.get(emp);
+    if(b == null) {
+      b = compute(emp, openMask);
+      cache.put(emp, b);
+    }
+    return b;
+  }
+
+
+
+  /**
+   * Forgets the employee's blocks, such as after their availability changed
+   */
+  public void invalidate(Employee emp) {
+    cache.remove(emp);
+  }
+
+
+
+  /**
+   * Forgets every employee's blocks since they are clipped to the business
+   * hours. openMask is weekly, from Scheduler::openMasks
+   */
+  public void setBusinessHours(long[] openMask) {
+    this.openMask = openMask.clone();
+    cache.clear();
+  }
+
+
+
+  /**
+   * Works out the employee's blocks for the given weekly mask of the open
+   * slots
+   */
+  public static Blocks compute(Employee emp, long[] openMask) {
+    int[][] blocks = new int[TimeSlots.WEEK_DAYS][];
+    int[][] lengthStart = new int[TimeSlots.WEEK_DAYS][];
+    int numLengths = Scheduler.MAX_SHIFT - Scheduler.MIN_SHIFT + 2;
+    int[] found = new int[TimeSlots.WEEK_SLOTS];
+    long[] prf = emp.availMask(ScheduleMaker.PRF);
+    long[] alt = emp.availMask(ScheduleMaker.ALT);
+    long[] usable = new long[openMask.length];
+    long full;
+    int n, groupStart;
+
+    Boolean any = false;
+    for(int w = 0; w < usable.length; w++) {
+      usable[w] = (prf[w] | alt[w]) & openMask[w];
+      any |= usable[w] != 0;
+    }
+
+    for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+      lengthStart[d] = new int[numLengths];
+      n = 0;
+
+      for(int len = Scheduler.MAX_SHIFT; len >= Scheduler.MIN_SHIFT; len--) {
+        groupStart = n;
+        lengthStart[d][Scheduler.MAX_SHIFT - len] = n;
+        full = Scheduler.rangeMask(0, len);
+        for(int s = 0; any && s < TimeSlots.SLOTS_PER_DAY; s++) {
+          if(Scheduler.window(usable, d, s, len) != full)
+            continue;
+          if(n == found.length)
+            found = Arrays.copyOf(found, n*2);
+          found[n++] = pack(s, len,
+                            Scheduler.PRF_WEIGHT
+                            *Long.bitCount(Scheduler.window(prf, d, s, len))
+                            + Scheduler.ALT_WEIGHT
+                            *Long.bitCount(Scheduler.window(alt, d, s, len)));
+        }
+
+        // The score is in the high bits, so sorting ranks by score; reverse
+        // to put the best first
+        Arrays.sort(found, groupStart, n);
+        for(int i = groupStart, j = n-1; i < j; i++, j--) {
+          int t = found[i];
+          found[i] = found[j];
+          found[j] = t;
+        }
+      }
+      lengthStart[d][numLengths-1] = n;
+      blocks[d] = Arrays.copyOf(found, n);
+    }
+
+    return new Blocks(blocks, lengthStart);
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  public static int start(int block) {
+    return block & (1 << START_BITS)-1;
+  }
+
+  public static int length(int block) {
+    return block >>> START_BITS & (1 << LENGTH_BITS)-1;
+  }
+
+  public static int value(int block) {
+    return block >>> START_BITS+LENGTH_BITS;
+  }
+
+  private static int pack(int start, int len, int value) {
+    return value << START_BITS+LENGTH_BITS | len << START_BITS | start;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class works on slot masks: bit sets with one bit per slot, packed
+ *    64 slots to a long, with slot i in bit i%64 of word i/64. A weekly mask
+ *    holds TimeSlots.WEEK_SLOTS bits and a period mask TimeSlots.PERIOD_SLOTS,
+ *    so the masks grow with the number of slots instead of being limited to
+ *    one long per day.
+ *
+ *    The masks are rings: reading a window that runs past the last slot
+ *    carries on from the first, so a shift late on the last day wraps into
+ *    the first. A window is at most 64 slots long and comes back as a long
+ *    with its first slot in bit 0, which lets the scheduler compare a whole
+ *    shift against a mask in one operation wherever the shift lies.
+ */
+
+public final class SlotMask {
+  private SlotMask() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Returns an empty mask of size slots
+   */
+  public static long[] create(int size) {
+    return new long[(size + 63) >>> 6];
+  }
+
+
+
+  /**
+   * Returns an empty weekly mask
+   */
+  public static long[] week() {
+    return create(TimeSlots.WEEK_SLOTS);
+  }
+
+
+
+  public static Boolean get(long[] mask, int i) {
+    return (mask[i >>> 6] >>> i & 1L) != 0;
+  }
+
+
+
+  public static void set(long[] mask, int i, Boolean on) {
+    if(on)
+      mask[i >>> 6] |= 1L << i;
+    else
+      mask[i >>> 6] &= ~(1L << i);
+  }
+
+
+
+  /**
+   * Returns the len (at most 64) slots of the ring of size slots starting at
+   * slot from, with slot from in bit 0
+   */
+  public static long window(long[] mask, int size, int from, int len) {
+    if(from + len <= size)
+      return bits(mask, from, len);
+    int first = size - from;
+    return bits(mask, from, first) | bits(mask, 0, len - first) << first;
+  }
+
+
+
+  /**
+   * Sets the slots from (inclusive) to (exclusive) of the ring of size slots.
+   * to may be past size, in which case the slots wrap around
+   */
+  public static void setRange(long[] mask, int size, int from, int to) {
+    for(int i = from; i < to; i++)
+      set(mask, i % size, true);
+  }
+
+
+
+  /**
+   * Returns the valid bits of word w of a mask of size slots
+   */
+  public static long wordBits(int w, int size) {
+    int left = size - (w << 6);
+    return (left >= 64) ? -1L : (1L << left) - 1;
+  }
+
+
+
+  /**
+   * Returns a weekly mask at the current slot length from a weekly mask with
+   * srcPerDay slots a day. When a new slot covers several old ones, it is set
+   * if all of them are set when all is true, or if any of them is otherwise
+   */
+  public static long[] resample(long[] src, int srcPerDay, Boolean all) {
+    long[] mask = week();
+    int perDay = TimeSlots.SLOTS_PER_DAY;
+    int from, to;
+    Boolean on;
+
+    for(int i = 0; i < TimeSlots.WEEK_SLOTS; i++) {
+      from = (int)((long)i*srcPerDay / perDay);
+      to = Math.max(from+1, (int)((long)(i+1)*srcPerDay / perDay));
+      on = all;
+      for(int j = from; j < to; j++)
+        if(all ? !get(src, j) : get(src, j)) {
+          on = !all;
+          break;
+        }
+      if(on)
+        set(mask, i, true);
+    }
+    return mask;
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Returns len slots starting at slot from, which must not run past the end
+   * of the mask
+   */
+  private static long bits(long[] mask, int from, int len) {
+    if(len == 0)
+      return 0L;
+    int w = from >>> 6;
+    int b = from & 63;
+    long bits = mask[w] >>> b;
+    if(b + len > 64)
+      bits |= mask[w+1] << (64 - b);
+    return (len == 64) ? bits : bits & (1L << len) - 1;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class holds how many employees of each position the business needs
+ *    in each slot of the week, and stores it in the demand file. For each
+ *    position with a demand curve, the file has the position's name on one
+ *    line followed by one line per day with the required count of each slot
+ *    separated by spaces. The week repeats over every week of the period.
+ *
+ *    A file written with another slot length has another number of counts
+ *    per line and is converted when it is read. When a new slot covers
+ *    several old ones, it needs the most any of them needed.
+ *
+ *    The scheduler treats the demand as a minimum headcount, and the
+ *    CoverageTable compares it with the assigned shifts.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+public class StaffingDemand {
+  public static final String FILE_NAME = "demand.dat";
+
+  // Position -> required employees, indexed by weekday*SLOTS_PER_DAY + slot
+  private LinkedHashMap<String, int[]> required;
+
+//==============================================================================
+  public StaffingDemand() {
+    required = new LinkedHashMap<String, int[]>();
+  }
+
+
+
+  /**
+   * Returns a copy that can be edited without changing this one
+   */
+  public StaffingDemand copy() {
+    StaffingDemand c = new StaffingDemand();
+    for(String pos : required.keySet())
+      c.required.put(pos, required.get(pos).clone());
+    return c;
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Reads the demand file
+   */
+  public static StaffingDemand load(File file) throws Exception {
+    StaffingDemand demand = new StaffingDemand();
+    Scanner reader = new Scanner(file, "UTF-8");
+    String pos;
+    String[] counts;
+    int[] curve;
+    int perDay;
+
+    try {
+      while(reader.hasNextLine()) {
+        pos = reader.nextLine();
+        if(pos.trim().length() == 0)
+          continue;
+
+        // The first day's line tells the slot length the file was written in
+        curve = null;
+        perDay = 0;
+        for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+          counts = reader.nextLine().trim().split("\\s+");
+          if(d == 0) {
+            perDay = counts.length;
+            if(24*60 % perDay != 0 ||
+               !TimeSlots.isSupported(TimeSlots.SLOT_MINUTES_PROPERTY,
+                                      24*60 / perDay))
+              throw new Exception(perDay +" counts per day for " +pos
+                                  +" is not a supported slot length");
+            curve = new int[TimeSlots.WEEK_DAYS*perDay];
+          }
+          else if(counts.length != perDay)
+            throw new Exception("uneven demand lines for " +pos);
+
+          for(int r = 0; r < perDay; r++) {
+            curve[d*perDay + r] = Integer.parseInt(counts[r]);
+            if(curve[d*perDay + r] < 0)
+              throw new Exception("negative demand for " +pos);
+          }
+        }
+        demand.required.put(pos, resample(curve, perDay));
+      }
+    }
+    catch(java.util.NoSuchElementException | NumberFormatException e) {
+      throw new Exception("demand file is cut short or not numeric");
+    }
+    finally {
+      reader.close();
+    }
+
+    return demand;
+  }
+
+
+
+  /**
+   * Writes the demand file. Positions that need nobody are left out
+   */
+  public void save(File file) throws Exception {
+    FileWriter fw = new FileWriter(file);
+    PrintWriter writer = new PrintWriter(new BufferedWriter(fw));
+    int[] curve;
+
+    for(String pos : getPositions()) {
+      curve = required.get(pos);
+      writer.print(pos +"\n");
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++) {
+          if(r > 0)
+            writer.print(" ");
+          writer.print(curve[d*TimeSlots.SLOTS_PER_DAY + r]);
+        }
+        writer.print("\n");
+      }
+    }
+    writer.close();
+  }
+
+
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  public int get(String pos, int d, int r) {
+    int[] curve = required.get(pos);
+    return (curve == null) ? 0 : curve[d*TimeSlots.SLOTS_PER_DAY + r];
+  }
+
+
+
+  public void set(String pos, int d, int r, int count) {
+    int[] curve = required.get(pos);
+    if(curve == null) {
+      if(count == 0)
+        return;
+      curve = new int[TimeSlots.WEEK_SLOTS];
+      required.put(pos, curve);
+    }
+    curve[d*TimeSlots.SLOTS_PER_DAY + r] = Math.max(0, count);
+  }
+
+
+
+  /**
+   * Returns the position's demand indexed by weekday*SLOTS_PER_DAY + slot, or
+   * null if it has none. The array is shared and must not be modified
+   */
+  public int[] getCurve(String pos) {
+    return required.get(pos);
+  }
+
+
+
+  /**
+   * Returns the positions that need at least one employee at some point
+   */
+  public ArrayList<String> getPositions() {
+    ArrayList<String> list = new ArrayList<String>();
+    for(String pos : required.keySet()) {
+      int[] curve = required.get(pos);
+      for(int i = 0; i < curve.length; i++)
+        if(curve[i] > 0) {
+          list.add(pos);
+          break;
+        }
+    }
+    return list;
+  }
+
+
+
+  /**
+   * Converts a weekly curve with srcPerDay slots a day to the current slot
+   * length
+   */
+  private static int[] resample(int[] src, int srcPerDay) {
+    if(srcPerDay == TimeSlots.SLOTS_PER_DAY)
+      return src;
+
+    int[] curve = new int[TimeSlots.WEEK_SLOTS];
+    int from, to;
+    for(int i = 0; i < curve.length; i++) {
+      from = (int)((long)i*srcPerDay / TimeSlots.SLOTS_PER_DAY);
+      to = Math.max(from+1,
+                    (int)((long)(i+1)*srcPerDay / TimeSlots.SLOTS_PER_DAY));
+      for(int j = from; j < to; j++)
+        curve[i] = Math.max(curve[i], src[j]);
+    }
+    return curve;
+  }
+}
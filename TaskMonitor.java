@@ -0,0 +1,16 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ * 
+ * Description:
+ *    This interface is implemented by anything that runs a long ScheduleMaker
+ *    operation in the background and wants to follow its progress and be able
+ *    to cancel it, such as the GUI while a schedule is being generated.
+ */
+
+public interface TaskMonitor extends ProgressListener {
+  /**
+   * Checked periodically by the running task, which stops by throwing a
+   * java.util.concurrent.CancellationException once this returns true
+   */
+  public Boolean isCancelled();
+}
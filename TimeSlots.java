@@ -0,0 +1,290 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class defines the time layout the program works in, and converts
+ *    between the three ways a time of day is written: the slot index (the
+ *    r-th slot of the day), the integer 24-hour time (930 for 9:30 AM), and
+ *    its label ("9:30AM"). Every conversion is a lookup in a table built once
+ *    when the class is loaded, so nothing is allocated or parsed while
+ *    scheduling, drawing the grids, or exporting. Shift labels are the
+ *    exception: there is one per start and length, over 20,000 with 10-minute
+ *    slots, so each is made the first time it is asked for and kept.
+ *
+ *    The layout is read from two system properties when the class is loaded:
+ *
+ *      slot.minutes  length of a slot: 10, 12, 15, 20, 30 (default), or 60
+ *      period.days   days in a schedule: 7 (default), 14, 21, or 28
+ *
+ *    A slot must divide the hour, and be long enough that the longest shift
+ *    fits in one 64-bit mask word. Availability, business hours, and demand
+ *    are weekly and repeat over every week of the period; day d of the period
+ *    falls on weekday d % 7. A bad setting is replaced by the default, and
+ *    settingWarnings() says so for the program to report in its own way.
+ *
+ *    The business hours menus write a space before AM/PM ("9:30 AM"); both
+ *    forms are accepted when parsing.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public final class TimeSlots {
+  public static final String CLOSED = "Closed",
+                             OPEN_24 = "24 HR",
+                             OFF = "OFF";
+
+  public static final String SLOT_MINUTES_PROPERTY = "slot.minutes",
+                             PERIOD_DAYS_PROPERTY = "period.days";
+
+  // Settings that were not used, filled in by setting() so it must come first
+  private static final ArrayList<String> SETTING_WARNINGS =
+                                                      new ArrayList<String>();
+
+  public static final int WEEK_DAYS = 7,
+                          SLOT_MINUTES = setting(SLOT_MINUTES_PROPERTY, 30),
+                          NUM_DAYS = setting(PERIOD_DAYS_PROPERTY, 7),
+                          NUM_WEEKS = NUM_DAYS / WEEK_DAYS,
+                          SLOTS_PER_HOUR = 60 / SLOT_MINUTES,
+                          SLOTS_PER_DAY = 24*SLOTS_PER_HOUR,
+                          WEEK_SLOTS = WEEK_DAYS*SLOTS_PER_DAY,
+                          PERIOD_SLOTS = NUM_DAYS*SLOTS_PER_DAY;
+
+  // The layout of the files written before the slot length could be changed
+  public static final int LEGACY_SLOTS_PER_DAY = 48;
+
+  private static final String[] WEEKDAY_NAMES = {"Mon", "Tue", "Wed", "Thu",
+                                                 "Fri", "Sat", "Sun"};
+
+  // Per slot
+  private static final int[]    TIME = new int[SLOTS_PER_DAY];
+  private static final String[] LABEL = new String[SLOTS_PER_DAY],
+                                MENU_LABEL = new String[SLOTS_PER_DAY];
+
+  // Per 24-hour time from 0 to 2359, the slot it falls in
+  private static final int[] SLOT = new int[2400];
+
+  // Per start slot and length in slots, e.g. "9:00AM-5:00PM", filled in by
+  // shiftLabel() as labels are used
+  private static final String[][] SHIFT_LABEL = new String[SLOTS_PER_DAY][];
+
+  // Per day of the period, e.g. "Mon", or "Mon 2" past the first week
+  private static final String[] DAY_NAME = new String[NUM_DAYS];
+
+  // Every accepted label -> 24-hour time
+  private static final HashMap<String, Integer> PARSE =
+                                                  new HashMap<String, Integer>();
+
+  static {
+    int h, m;
+
+    for(int r = 0; r < SLOTS_PER_DAY; r++) {
+      h = r*SLOT_MINUTES / 60;
+      m = r*SLOT_MINUTES % 60;
+      TIME[r] = h*100 + m;
+      LABEL[r] = format(TIME[r], "");
+      MENU_LABEL[r] = format(TIME[r], " ");
+
+      PARSE.put(LABEL[r], TIME[r]);
+      PARSE.put(MENU_LABEL[r], TIME[r]);
+      if(h%12 != 0 && h%12 < 10) {
+        PARSE.put("0" +LABEL[r], TIME[r]);
+        PARSE.put("0" +MENU_LABEL[r], TIME[r]);
+      }
+    }
+    PARSE.put(CLOSED, ScheduleMaker.HOURS_CLOSED);
+    PARSE.put(OPEN_24, ScheduleMaker.HOURS_24);
+
+    for(int t = 0; t < SLOT.length; t++)
+      SLOT[t] = ((t/100)*60 + t%100) / SLOT_MINUTES;
+
+    for(int d = 0; d < NUM_DAYS; d++)
+      DAY_NAME[d] = WEEKDAY_NAMES[d % WEEK_DAYS]
+                    +(NUM_WEEKS > 1 ? " " +(d/WEEK_DAYS + 1) : "");
+  }
+
+  private TimeSlots() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Returns the 24-hour time at which the slot starts. The slot after the
+   * last one is midnight
+   */
+  public static int toTime(int slot) {
+    return TIME[slot % SLOTS_PER_DAY];
+  }
+
+
+
+  /**
+   * Returns the slot the 24-hour time falls in
+   */
+  public static int toSlot(int time) {
+    return SLOT[time];
+  }
+
+
+
+  /**
+   * Returns the label of the time at which the slot starts, like "9:30AM"
+   */
+  public static String label(int slot) {
+    return LABEL[slot % SLOTS_PER_DAY];
+  }
+
+
+
+  /**
+   * Returns the label used by the business hours menus, like "9:30 AM"
+   */
+  public static String menuLabel(int slot) {
+    return MENU_LABEL[slot];
+  }
+
+
+
+  /**
+   * Returns the label of a 24-hour time, or "Closed" or "24 HR" for
+   * HOURS_CLOSED and HOURS_24. A time between slot boundaries, like 930 with
+   * hour slots, is written out as it is rather than as its slot's start
+   */
+  public static String timeLabel(int time) {
+    if(time == ScheduleMaker.HOURS_CLOSED)
+      return CLOSED;
+    if(time == ScheduleMaker.HOURS_24)
+      return OPEN_24;
+    int slot = SLOT[time];
+    return (TIME[slot] == time) ? LABEL[slot] : format(time, "");
+  }
+
+
+
+  /**
+   * Returns a shift's time range, like "9:00AM-5:00PM", or "OFF" for a length
+   * of 0
+   */
+  public static String shiftLabel(int start, int length) {
+    if(length == 0)
+      return OFF;
+
+    // Threads may race to make the same label; they make equal strings, and a
+    // thread that doesn't see another's makes it again, so no lock is needed
+    String[] row = SHIFT_LABEL[start];
+    if(row == null) {
+      row = new String[SLOTS_PER_DAY+1];
+      SHIFT_LABEL[start] = row;
+    }
+    String label = row[length];
+    if(label == null) {
+      label = LABEL[start] +"-" +LABEL[(start+length) % SLOTS_PER_DAY];
+      row[length] = label;
+    }
+    return label;
+  }
+
+
+
+  /**
+   * Returns the 24-hour time of a label in either form, or HOURS_CLOSED or
+   * HOURS_24 for "Closed" or "24 HR"
+   */
+  public static int parse(String label) throws Exception {
+    Integer time = PARSE.get(label);
+    if(time == null)
+      throw new Exception("bad time \"" +label +"\"");
+    return time;
+  }
+
+
+
+  /**
+   * Returns the short name of day d of the period
+   */
+  public static String dayName(int d) {
+    return DAY_NAME[d];
+  }
+
+
+
+  /**
+   * Returns the weekday (0 for Monday) of day d of the period
+   */
+  public static int weekday(int d) {
+    return d % WEEK_DAYS;
+  }
+
+
+
+  /**
+   * Returns the number of slots in the hours
+   */
+  public static int slots(int hours) {
+    return hours*SLOTS_PER_HOUR;
+  }
+
+
+
+  /**
+   * Returns a message for every setting that was not supported and replaced
+   * by its default
+   */
+  public static ArrayList<String> settingWarnings() {
+    return new ArrayList<String>(SETTING_WARNINGS);
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Writes out a 24-hour time, like "9:30AM", with the gap before AM/PM
+   */
+  private static String format(int time, String gap) {
+    int h = time / 100;
+    int m = time % 100;
+    int h12 = (h%12 == 0) ? 12 : h%12;
+    return h12 +":" +(m < 10 ? "0" : "") +m +gap +(h < 12 ? "AM" : "PM");
+  }
+
+
+
+  /**
+   * Reads one layout setting, falling back to the default if it is missing or
+   * not supported
+   */
+  private static int setting(String name, int def) {
+    String text = System.getProperty(name);
+    if(text == null)
+      return def;
+
+    int value;
+    try {
+      value = Integer.parseInt(text.trim());
+    }
+    catch(NumberFormatException e) {
+      value = -1;
+    }
+    if(isSupported(name, value))
+      return value;
+
+    SETTING_WARNINGS.add("unsupported " +name +" \"" +text +"\", using "
+                         +def);
+    return def;
+  }
+
+
+
+  /**
+   * Checks if the value is a supported slot length or period length
+   */
+  public static Boolean isSupported(String name, int value) {
+    if(name.equals(SLOT_MINUTES_PROPERTY))
+      return value >= 10 && 60 % value == 0;
+    return value >= WEEK_DAYS && value <= 4*WEEK_DAYS
+           && value % WEEK_DAYS == 0;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class writes the schedule to an MS Excel file with Apache POI. It is
+ *    the only class that uses POI, and ScheduleMaker only loads it by name the
+ *    first time a schedule is exported, so starting the program never pays
+ *    for loading POI and its XML libraries.
+ *
+ *    The workbook is streamed: only the last ROW_WINDOW rows are kept in
+ *    memory and older rows are flushed to a temporary file, so memory use
+ *    stays flat regardless of the number of employees. Every cell style is
+ *    created once up front and shared by all the rows that use it.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.*;
+
+public class XlsxExporter implements ScheduleExporter {
+  // Number of spreadsheet rows kept in memory while exporting
+  private static final int ROW_WINDOW = 100;
+
+//==============================================================================
+  public XlsxExporter() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  @Override
+  public void export(ScheduleTable table, File outFile, TaskMonitor monitor)
+    throws Exception {
+    SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+    wb.setCompressTempFiles(true);
+    File partFile = new File(outFile.getPath() +".part");
+
+    try {
+      Metrics.Span phase = Metrics.start("export.sheet");
+      writeSchedule(wb, table, monitor);
+      phase.stop(table.numEmployees());
+
+      phase = Metrics.start("export.write");
+      OutputStream writer =
+        new BufferedOutputStream(new FileOutputStream(partFile));
+      try {
+        wb.write(writer);
+      }
+      finally {
+        writer.close();
+      }
+
+      Files.move(partFile.toPath(), outFile.toPath(),
+                 StandardCopyOption.REPLACE_EXISTING);
+      phase.stop();
+    }
+    finally {
+      // Deletes the temporary files holding the flushed rows
+      wb.dispose();
+      partFile.delete();
+    }
+  }
+
+
+
+  /**
+   * Writes an empty schedule to memory, which loads the POI classes and sets
+   * up the XML and zip writers the same way a real export does
+   */
+  @Override
+  public void warm() throws Exception {
+    SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+    try {
+      writeSchedule(wb, new ScheduleTable(), null);
+      wb.write(new ByteArrayOutputStream());
+    }
+    finally {
+      wb.dispose();
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Fills the workbook with the schedule sheet
+   */
+  private void writeSchedule(Workbook wb, ScheduleTable table,
+                             TaskMonitor monitor) {
+    CreationHelper helper = wb.getCreationHelper();
+    Sheet sheet = wb.createSheet("main");
+    Row row;
+    int rowNum = 0;
+
+    // Fonts
+    String defFont = "Arial";
+    short defFontSize = 12;
+    Font titleFont = wb.createFont();
+    titleFont.setFontHeightInPoints((short)(defFontSize*2));
+    titleFont.setFontName(defFont);
+    titleFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+    titleFont.setColor(IndexedColors.WHITE.getIndex());
+    Font posFont = wb.createFont();
+    posFont.setFontHeightInPoints(defFontSize);
+    posFont.setFontName(defFont);
+    posFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+    posFont.setColor(IndexedColors.WHITE.getIndex());
+    Font regFont = wb.createFont();
+    regFont.setFontHeightInPoints(defFontSize);
+    regFont.setFontName(defFont);
+    regFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+    regFont.setColor(IndexedColors.BLACK.getIndex());
+
+    // Styles, shared by every row that uses them
+    CellStyle titleStyle = wb.createCellStyle();
+    titleStyle.setAlignment(CellStyle.ALIGN_CENTER);
+    titleStyle.setFont(titleFont);
+    titleStyle.setFillBackgroundColor(IndexedColors.DARK_BLUE.getIndex());
+    titleStyle.setFillPattern(CellStyle.BIG_SPOTS);
+    CellStyle headerStyle = wb.createCellStyle();
+    headerStyle.setFont(regFont);
+    headerStyle.setAlignment(CellStyle.ALIGN_CENTER);
+    headerStyle.setFillBackgroundColor(IndexedColors.PALE_BLUE.getIndex());
+    CellStyle posStyle = wb.createCellStyle();
+    posStyle.setAlignment(CellStyle.ALIGN_CENTER);
+    posStyle.setFont(posFont);
+    posStyle.setFillBackgroundColor(IndexedColors.PALE_BLUE.getIndex());
+    posStyle.setFillPattern(CellStyle.FINE_DOTS);
+    CellStyle empStyle = wb.createCellStyle();
+    empStyle.setFont(regFont);
+    empStyle.setAlignment(CellStyle.ALIGN_CENTER);
+
+    // Create the title row
+    row = sheet.createRow(rowNum);
+    setCell(row, 0, TimeSlots.NUM_WEEKS == 1 ? "Weekly Work Schedule"
+                    : TimeSlots.NUM_DAYS +"-Day Work Schedule",
+            titleStyle, helper);
+    row.setHeight((short)(row.getHeight()*2));
+    sheet.addMergedRegion(new CellRangeAddress(rowNum, rowNum, 0,
+                                               ScheduleTable.NUM_COLS-1));
+    rowNum++;
+
+    // Row with column names
+    row = sheet.createRow(rowNum);
+    setCell(row, ScheduleTable.NAME_COL, "Name", headerStyle, helper);
+    setCell(row, ScheduleTable.PHONE_COL, "Phone #", headerStyle, helper);
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++)
+      setCell(row, ScheduleTable.FIRST_DAY_COL + d, TimeSlots.dayName(d),
+              headerStyle, helper);
+    rowNum++;
+
+    ArrayList<String[]> posRows;
+    String[] empRow;
+    int written = 0;
+
+    // For each position that exists, write each employee's data
+    for(int i = 0; i < table.numPositions(); i++) {
+      // Create the row that displays the position title
+      row = sheet.createRow(rowNum);
+      setCell(row, 0, table.getPosition(i), posStyle, helper);
+      sheet.addMergedRegion(new CellRangeAddress(rowNum, rowNum, 0,
+                                                 ScheduleTable.NUM_COLS-1));
+      rowNum++;
+
+      // Write the row of each employee who holds the ith position
+      posRows = table.getRows(i);
+      for(int j = 0; j < posRows.size(); j++, rowNum++) {
+        empRow = posRows.get(j);
+        row = sheet.createRow(rowNum);
+        for(int k = 0; k < ScheduleTable.NUM_COLS; k++)
+          setCell(row, k, empRow[k], empStyle, helper);
+
+        written++;
+        if(monitor != null) {
+          if(monitor.isCancelled())
+            throw new CancellationException();
+          monitor.progress(written, table.numEmployees());
+        }
+      }
+    }
+
+    // Set column widths
+    int defW = sheet.getColumnWidth(0);
+    sheet.setColumnWidth(0, (int)(defW*1.9));
+    sheet.setColumnWidth(1, (int)(defW*2.0));
+    defW = sheet.getColumnWidth(ScheduleTable.FIRST_DAY_COL);
+    for(int i = ScheduleTable.FIRST_DAY_COL; i < ScheduleTable.NUM_COLS; i++)
+      sheet.setColumnWidth(i, (int)(defW*1.8));
+  }
+
+
+
+  /**
+   * Creates a cell with the text and style in the row
+   */
+  private void setCell(Row row, int col, String text, CellStyle style,
+                       CreationHelper helper) {
+    Cell cell = row.createCell(col);
+    cell.setCellValue(helper.createRichTextString(text));
+    cell.setCellStyle(style);
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class gives the benchmarks access to the program. JMH refuses
+ *    benchmarks in the default package, where every class of the program is,
+ *    and a class in a named package can't refer to those classes by name. So
+ *    each entry point the benchmarks use is looked up once, by name, as a
+ *    MethodHandle held in a static final field, which the JIT compiles to a
+ *    direct call; the handles add nothing measurable even to the time
+ *    conversions. Objects of the program's classes are passed around as
+ *    Object.
+ */
+
+package bench;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+
+final class App {
+  private static final MethodHandles.Lookup LOOKUP =
+                                                 MethodHandles.publicLookup();
+
+  private static final Class<?> SCHEDULE_MAKER = type("ScheduleMaker"),
+                                EMPLOYEE = type("Employee"),
+                                SCHEDULE_TABLE = type("ScheduleTable"),
+                                TIME_SLOTS = type("TimeSlots");
+
+  static final int SLOTS_PER_DAY = intConstant(TIME_SLOTS, "SLOTS_PER_DAY"),
+                   NUM_DAYS = intConstant(TIME_SLOTS, "NUM_DAYS"),
+                   FIRST_DAY_COL = intConstant(SCHEDULE_TABLE, "FIRST_DAY_COL");
+
+  // ScheduleMaker
+  private static final MethodHandle NEW_SCHEDULE_MAKER =
+    constructor(SCHEDULE_MAKER, File.class, type("ProgressListener"));
+  private static final MethodHandle EMP_LIST =
+    getter(SCHEDULE_MAKER, "empList", ArrayList.class);
+  private static final MethodHandle EDIT_EMPLOYEE =
+    virtual(SCHEDULE_MAKER, "editEmployee", void.class, EMPLOYEE, String.class,
+            String.class);
+  private static final MethodHandle REMOVE_EMPLOYEE =
+    virtual(SCHEDULE_MAKER, "removeEmployee", void.class, ArrayList.class);
+  private static final MethodHandle EXPORT =
+    virtual(SCHEDULE_MAKER, "export", void.class, SCHEDULE_TABLE, String.class,
+            type("TaskMonitor"));
+  private static final MethodHandle CLOSE =
+    virtual(SCHEDULE_MAKER, "close", void.class);
+
+  // RosterGenerator
+  private static final MethodHandle GENERATE =
+    function(type("RosterGenerator"), "generate", void.class, File.class,
+             int.class, long.class);
+
+  // ScheduleTable
+  private static final MethodHandle NEW_SCHEDULE_TABLE =
+    constructor(SCHEDULE_TABLE);
+  private static final MethodHandle ADD_POSITION =
+    virtual(SCHEDULE_TABLE, "addPosition", void.class, String.class);
+  private static final MethodHandle ADD_ROW =
+    virtual(SCHEDULE_TABLE, "addRow", String[].class, String.class,
+            String.class);
+
+  // TimeSlots
+  private static final MethodHandle PARSE =
+    function(TIME_SLOTS, "parse", int.class, String.class);
+  private static final MethodHandle LABEL =
+    function(TIME_SLOTS, "label", String.class, int.class);
+  private static final MethodHandle MENU_LABEL =
+    function(TIME_SLOTS, "menuLabel", String.class, int.class);
+  private static final MethodHandle TIME_LABEL =
+    function(TIME_SLOTS, "timeLabel", String.class, int.class);
+  private static final MethodHandle TO_SLOT =
+    function(TIME_SLOTS, "toSlot", int.class, int.class);
+  private static final MethodHandle TO_TIME =
+    function(TIME_SLOTS, "toTime", int.class, int.class);
+  private static final MethodHandle SHIFT_LABEL =
+    function(TIME_SLOTS, "shiftLabel", String.class, int.class, int.class);
+
+  private App() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Loads the store in the directory, as the program does when it starts
+   */
+  static Object load(File dir) throws Throwable {
+    return NEW_SCHEDULE_MAKER.invoke(dir, null);
+  }
+
+
+
+  @SuppressWarnings("unchecked")
+  static ArrayList<Object> employees(Object sm) throws Throwable {
+    return (ArrayList<Object>)EMP_LIST.invoke(sm);
+  }
+
+
+
+  static void editEmployee(Object sm, Object emp, String position,
+                           String phone) throws Throwable {
+    EDIT_EMPLOYEE.invoke(sm, emp, position, phone);
+  }
+
+
+
+  static void removeEmployee(Object sm, ArrayList<Object> list)
+    throws Throwable {
+    REMOVE_EMPLOYEE.invoke(sm, list);
+  }
+
+
+
+  static void export(Object sm, Object table, String fileName)
+    throws Throwable {
+    EXPORT.invoke(sm, table, fileName, null);
+  }
+
+
+
+  /**
+   * Closes a loaded store, if there is one
+   */
+  static void close(Object sm) throws Throwable {
+    if(sm != null)
+      CLOSE.invoke(sm);
+  }
+
+
+
+  /**
+   * Writes a synthetic store into the directory
+   */
+  static void generate(File dir, int employees, long seed) throws Throwable {
+    GENERATE.invoke(dir, employees, seed);
+  }
+
+
+
+  static Object newTable() throws Throwable {
+    return NEW_SCHEDULE_TABLE.invoke();
+  }
+
+
+
+  static void addPosition(Object table, String position) throws Throwable {
+    ADD_POSITION.invoke(table, position);
+  }
+
+
+
+  static String[] addRow(Object table, String name, String phone)
+    throws Throwable {
+    return (String[])ADD_ROW.invoke(table, name, phone);
+  }
+
+
+
+  static int parse(String label) throws Throwable {
+    return (int)PARSE.invokeExact(label);
+  }
+
+
+
+  static String label(int slot) throws Throwable {
+    return (String)LABEL.invokeExact(slot);
+  }
+
+
+
+  static String menuLabel(int slot) throws Throwable {
+    return (String)MENU_LABEL.invokeExact(slot);
+  }
+
+
+
+  static String timeLabel(int time) throws Throwable {
+    return (String)TIME_LABEL.invokeExact(time);
+  }
+
+
+
+  static int toSlot(int time) throws Throwable {
+    return (int)TO_SLOT.invokeExact(time);
+  }
+
+
+
+  static int toTime(int slot) throws Throwable {
+    return (int)TO_TIME.invokeExact(slot);
+  }
+
+
+
+  static String shiftLabel(int start, int length) throws Throwable {
+    return (String)SHIFT_LABEL.invokeExact(start, length);
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static Class<?> type(String name) {
+    try {
+      return Class.forName(name);
+    }
+    catch(ClassNotFoundException e) {
+      throw new IllegalStateException("the program's classes are not on the"
+                                      +" class path: " +name, e);
+    }
+  }
+
+
+
+  private static int intConstant(Class<?> c, String name) {
+    try {
+      return c.getField(name).getInt(null);
+    }
+    catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(c.getName() +"." +name, e);
+    }
+  }
+
+
+
+  private static MethodHandle constructor(Class<?> c, Class<?>... params) {
+    try {
+      return LOOKUP.findConstructor(c, MethodType.methodType(void.class,
+                                                             params));
+    }
+    catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(c.getName() +" constructor", e);
+    }
+  }
+
+
+
+  private static MethodHandle getter(Class<?> c, String name,
+                                     Class<?> fieldType) {
+    try {
+      return LOOKUP.findGetter(c, name, fieldType);
+    }
+    catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(c.getName() +"." +name, e);
+    }
+  }
+
+
+
+  private static MethodHandle virtual(Class<?> c, String name, Class<?> ret,
+                                      Class<?>... params) {
+    try {
+      return LOOKUP.findVirtual(c, name, MethodType.methodType(ret, params));
+    }
+    catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(c.getName() +"." +name, e);
+    }
+  }
+
+
+
+  private static MethodHandle function(Class<?> c, String name, Class<?> ret,
+                                       Class<?>... params) {
+    try {
+      return LOOKUP.findStatic(c, name, MethodType.methodType(ret, params));
+    }
+    catch(ReflectiveOperationException e) {
+      throw new IllegalStateException(c.getName() +"." +name, e);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This benchmark measures writing the whole schedule to an MS Excel file,
+ *    with a shift or OFF in every day of every employee's row.
+ */
+
+package bench;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 15)
+@Fork(1)
+public class ExportBenchmark {
+  private static final String FILE_NAME = "bench.xlsx";
+
+  @Param({"10", "100", "1000", "10000"})
+  public int employees;
+
+  private File dir;
+  private Object sm,
+                 table;
+
+//==============================================================================
+  @Setup(Level.Trial)
+  public void createTable() throws Throwable {
+    dir = Rosters.legacyStore(0);
+    sm = App.load(dir);
+    table = App.newTable();
+
+    Random rand = new Random(employees);
+    String[] row;
+    int perPosition = (employees + Rosters.POSITIONS.length - 1)
+                      / Rosters.POSITIONS.length;
+    for(int i = 0; i < employees; i++) {
+      if(i % perPosition == 0)
+        App.addPosition(table, Rosters.POSITIONS[i / perPosition]);
+      row = App.addRow(table, "B. E" +i, "555-" +(1000 + rand.nextInt(9000)));
+      for(int d = 0; d < App.NUM_DAYS; d++) {
+        if(rand.nextInt(4) == 0)
+          row[App.FIRST_DAY_COL + d] = App.shiftLabel(0, 0);
+        else
+          row[App.FIRST_DAY_COL + d] = App.shiftLabel(
+            rand.nextInt(App.SLOTS_PER_DAY),
+            App.SLOTS_PER_DAY/8 + rand.nextInt(App.SLOTS_PER_DAY/6));
+      }
+    }
+  }
+
+
+
+  @TearDown(Level.Trial)
+  public void deleteStore() throws Throwable {
+    App.close(sm);
+    Rosters.delete(dir);
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  @Benchmark
+  public void export() throws Throwable {
+    App.export(sm, table, FILE_NAME);
+  }
+}
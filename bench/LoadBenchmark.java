@@ -0,0 +1,75 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This benchmark measures how long the program takes to load a store when
+ *    it starts, from the roster file and from the old per-employee files that
+ *    are migrated the first time a store is loaded.
+ */
+
+package bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class LoadBenchmark {
+  @Param({"10", "100", "1000", "10000"})
+  public int employees;
+
+  // "roster" loads the roster file, "legacy" migrates the employee files
+  @Param({"roster", "legacy"})
+  public String source;
+
+  private File dir;
+  private Object loaded;
+
+//==============================================================================
+  @Setup(Level.Trial)
+  public void createStore() throws Throwable {
+    if(source.equals("roster"))
+      dir = Rosters.rosterStore(employees);
+    else
+      dir = Rosters.legacyStore(employees);
+  }
+
+
+
+  @Setup(Level.Invocation)
+  public void resetStore() {
+    if(source.equals("legacy"))
+      Rosters.forgetRoster(dir);
+  }
+
+
+
+  @TearDown(Level.Invocation)
+  public void closeStore() throws Throwable {
+    App.close(loaded);
+    loaded = null;
+  }
+
+
+
+  @TearDown(Level.Trial)
+  public void deleteStore() {
+    Rosters.delete(dir);
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  @Benchmark
+  public Object load() throws Throwable {
+    loaded = App.load(dir);
+    return loaded;
+  }
+}
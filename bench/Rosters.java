@@ -0,0 +1,104 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class creates the synthetic stores the benchmarks run against. A
+ *    store is a temporary directory written by RosterGenerator, with business
+ *    hours and one file per employee in the old "employees" layout, so loading
+ *    it for the first time exercises the migration and every later load reads
+ *    the roster file. The seed is fixed, so a store of a given size is the
+ *    same on every run and results stay comparable over time.
+ */
+
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+final class Rosters {
+  static final String[] POSITIONS = {"Cashier", "Cook", "Host", "Manager"};
+
+  private static final long SEED = 20160401L;
+
+  private Rosters() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Creates a store of the number of employees that hasn't been loaded yet
+   */
+  static File legacyStore(int employees) throws Throwable {
+    File dir = Files.createTempDirectory("bench-store").toFile();
+    App.generate(dir, employees, SEED);
+    return dir;
+  }
+
+
+
+  /**
+   * Creates a store of the number of employees that has already been migrated
+   * to the roster file
+   */
+  static File rosterStore(int employees) throws Throwable {
+    File dir = legacyStore(employees);
+    App.close(App.load(dir));
+    return dir;
+  }
+
+
+
+  /**
+   * Deletes the roster file and journal of a store, so the next load
+   * migrates the employee files again
+   */
+  static void forgetRoster(File dir) {
+    File[] files = dir.listFiles();
+    for(int i = 0; i < files.length; i++)
+      if(files[i].getName().startsWith("roster."))
+        files[i].delete();
+  }
+
+
+
+  /**
+   * Copies a store into a new temporary directory
+   */
+  static File copy(File dir) throws IOException {
+    File copy = Files.createTempDirectory("bench-store").toFile();
+    copyFiles(dir, copy);
+    return copy;
+  }
+
+
+
+  static void delete(File f) {
+    if(f == null)
+      return;
+    File[] files = f.listFiles();
+    if(files != null)
+      for(int i = 0; i < files.length; i++)
+        delete(files[i]);
+    f.delete();
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static void copyFiles(File from, File to) throws IOException {
+    File[] files = from.listFiles();
+    for(int i = 0; i < files.length; i++) {
+      File target = new File(to, files[i].getName());
+      if(files[i].isDirectory()) {
+        target.mkdir();
+        copyFiles(files[i], target);
+      }
+      else
+        Files.copy(files[i].toPath(), target.toPath());
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This benchmark measures how long saving a change to the roster takes: a
+ *    single edit, which is what the employee panel does on every save, and
+ *    removing a tenth of the employees at once.
+ */
+
+package bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@Fork(1)
+public class SaveBenchmark {
+  /**
+   * A loaded store that stays loaded for the whole trial
+   */
+  @State(Scope.Benchmark)
+  public static class Loaded {
+    @Param({"10", "100", "1000", "10000"})
+    public int employees;
+
+    File dir;
+    Object sm;
+    ArrayList<Object> emps;
+    int next;
+
+    @Setup(Level.Trial)
+    public void load() throws Throwable {
+      dir = Rosters.rosterStore(employees);
+      sm = App.load(dir);
+      emps = App.employees(sm);
+      next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Throwable {
+      App.close(sm);
+      Rosters.delete(dir);
+    }
+  }
+
+
+
+  /**
+   * A freshly loaded copy of the store for every invocation, and the
+   * employees to remove from it
+   */
+  @State(Scope.Benchmark)
+  public static class Fresh {
+    @Param({"10", "100", "1000", "10000"})
+    public int employees;
+
+    File template,
+         dir;
+    Object sm;
+    ArrayList<Object> removed;
+
+    @Setup(Level.Trial)
+    public void createStore() throws Throwable {
+      template = Rosters.rosterStore(employees);
+    }
+
+    @Setup(Level.Invocation)
+    public void load() throws Throwable {
+      App.close(sm);
+      Rosters.delete(dir);
+      dir = Rosters.copy(template);
+      sm = App.load(dir);
+
+      ArrayList<Object> emps = App.employees(sm);
+      removed = new ArrayList<Object>();
+      for(int i = 0; i < emps.size(); i += 10)
+        removed.add(emps.get(i));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Throwable {
+      App.close(sm);
+      Rosters.delete(dir);
+      Rosters.delete(template);
+    }
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Changes one employee's phone number, a different employee each time
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 5, time = 2)
+  @Measurement(iterations = 10, time = 2)
+  public void editEmployee(Loaded state) throws Throwable {
+    Object emp = state.emps.get(state.next % state.emps.size());
+    App.editEmployee(state.sm, emp, "", "555-" +(state.next++ % 10000));
+  }
+
+
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 30)
+  public void removeEmployee(Fresh state) throws Throwable {
+    App.removeEmployee(state.sm, state.removed);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This benchmark measures the conversions between slots, 24-hour times and
+ *    labels in TimeSlots, which the grids, the business hours, and the export
+ *    do for every cell. Each invocation converts every slot of a day once, so
+ *    the results are per day of slots.
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TimeSlotsBenchmark {
+  private String[] labels,
+                   menuLabels;
+  private int[]    times;
+
+//==============================================================================
+  @Setup(Level.Trial)
+  public void createLabels() throws Throwable {
+    labels = new String[App.SLOTS_PER_DAY];
+    menuLabels = new String[App.SLOTS_PER_DAY];
+    times = new int[App.SLOTS_PER_DAY];
+    for(int r = 0; r < App.SLOTS_PER_DAY; r++) {
+      labels[r] = App.label(r);
+      menuLabels[r] = App.menuLabel(r);
+      times[r] = App.toTime(r);
+    }
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Label to 24-hour time, as when reading the employee grid
+   */
+  @Benchmark
+  public void parse(Blackhole bh) throws Throwable {
+    for(int r = 0; r < labels.length; r++)
+      bh.consume(App.parse(labels[r]));
+  }
+
+
+
+  /**
+   * Business hours menu label to 24-hour time
+   */
+  @Benchmark
+  public void parseMenuLabel(Blackhole bh) throws Throwable {
+    for(int r = 0; r < menuLabels.length; r++)
+      bh.consume(App.parse(menuLabels[r]));
+  }
+
+
+
+  /**
+   * 24-hour time to slot and back to its label
+   */
+  @Benchmark
+  public void timeLabel(Blackhole bh) throws Throwable {
+    for(int r = 0; r < times.length; r++) {
+      bh.consume(App.toSlot(times[r]));
+      bh.consume(App.timeLabel(times[r]));
+    }
+  }
+
+
+
+  /**
+   * Shift range labels, as in every cell of the exported schedule
+   */
+  @Benchmark
+  public void shiftLabel(Blackhole bh) throws Throwable {
+    for(int r = 0; r < labels.length; r++)
+      bh.consume(App.shiftLabel(r, 1 + r % 16));
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class holds what the tests in this directory share. There is no
+ *    test framework: each test is a class with a main() that makes its checks
+ *    with Check.that(), and finish() exits with status 1 if any of them
+ *    failed, so test/run stops at the first failing test.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public final class Check {
+  private static int checks = 0,
+                     failures = 0;
+
+  private Check() {
+  }
+
+
+
+//==============================================================================
+//  Core class methods
+//==============================================================================
+  /**
+   * Records one check, printing what was checked to stderr if it failed
+   */
+  public static void that(Boolean ok, String what) {
+    checks++;
+    if(!ok) {
+      failures++;
+      System.err.println("FAILED: " +what);
+    }
+  }
+
+
+
+  /**
+   * Checks that two values are equal, printing both if they are not
+   */
+  public static void equal(Object expected, Object actual, String what) {
+    Boolean ok = (expected == null) ? actual == null : expected.equals(actual);
+    that(ok, what +": expected " +expected +", got " +actual);
+  }
+
+
+
+  /**
+   * Prints the number of checks made by the test and exits with status 1 if
+   * any of them failed
+   */
+  public static void finish(String test) {
+    System.out.println(test +": " +(checks-failures) +"/" +checks
+                       +" checks passed");
+    if(failures > 0)
+      System.exit(1);
+  }
+
+
+
+  public static File tempDir(String prefix) throws IOException {
+    return Files.createTempDirectory(prefix).toFile();
+  }
+
+
+
+  public static void delete(File f) {
+    File[] files = f.listFiles();
+    if(files != null)
+      for(int i = 0; i < files.length; i++)
+        delete(files[i]);
+    f.delete();
+  }
+}
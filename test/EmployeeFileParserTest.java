@@ -0,0 +1,235 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class tests the reader of the old one-file-per-employee layout. A
+ *    file written by Employee::fileData must read back the same, files with
+ *    48 or 24 availability rows must be converted to the current slot length,
+ *    and a file that breaks the layout must be refused with a
+ *    MalformedFileException naming the file and line. One parser reads every
+ *    file, as it does when loading a directory, so a refused file must not
+ *    spoil the next one.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class EmployeeFileParserTest {
+  private static final String HEADER = "Cook\n555-0100\n10\n30\n10/1/2025\n";
+
+  private static EmployeeFileParser parser = new EmployeeFileParser();
+
+  public static void main(String[] args) throws Exception {
+    File dir = Check.tempDir("employee-file-parser-test");
+    try {
+      roundTrip(dir);
+      otherSlotLengths(dir);
+      lineEndings(dir);
+      longFile(dir);
+      rejectsBadFiles(dir);
+    }
+    finally {
+      Check.delete(dir);
+    }
+    Check.finish("EmployeeFileParserTest");
+  }
+
+
+
+//==============================================================================
+//  Tests
+//==============================================================================
+  /**
+   * Writes employees with Employee::fileData and reads them back
+   */
+  private static void roundTrip(File dir) throws Exception {
+    Random rand = new Random(7);
+    Employee saved, loaded;
+    long[] prf, alt;
+    int code;
+    for(int i = 0; i < 20; i++) {
+      prf = SlotMask.week();
+      alt = SlotMask.week();
+      for(int s = 0; s < TimeSlots.WEEK_SLOTS; s++) {
+        code = rand.nextInt(3);
+        SlotMask.set(prf, s, code == ScheduleMaker.PRF);
+        SlotMask.set(alt, s, code == ScheduleMaker.ALT);
+      }
+      saved = new Employee("First" +i +"_Last.dat", "Cashier", "555-01" +i,
+                           i, 20+i, "Never", "comment " +i, prf, alt);
+      loaded = parser.parse(write(dir, saved.fileName(), saved.fileData()));
+
+      Check.equal(saved.getName(), loaded.getName(), "name #" +i);
+      Check.equal(saved.getPosition(), loaded.getPosition(), "position #" +i);
+      Check.equal(saved.getPhone(), loaded.getPhone(), "phone #" +i);
+      Check.equal(saved.requestedHours()[0], loaded.requestedHours()[0],
+                  "min hours #" +i);
+      Check.equal(saved.requestedHours()[1], loaded.requestedHours()[1],
+                  "max hours #" +i);
+      Check.equal(saved.getLastSub(), loaded.getLastSub(),
+                  "last submission #" +i);
+      Check.equal(saved.getComment(), loaded.getComment(), "comment #" +i);
+      Check.that(sameAvail(saved, loaded), "availability #" +i);
+    }
+  }
+
+
+
+  /**
+   * Reads files written with half-hour and hour slots, whose availability
+   * changes on the hour so it converts exactly to any supported slot length
+   */
+  private static void otherSlotLengths(File dir) throws Exception {
+    int[] rows = {48, 24};
+    Employee emp;
+    for(int i = 0; i < rows.length; i++) {
+      emp = parser.parse(write(dir, "Rows_" +rows[i] +".dat",
+                               HEADER +"None\n" +hourlyRows(rows[i], "\n")));
+      Check.that(hasHourlyAvail(emp),
+                 rows[i] +" rows converted to " +TimeSlots.SLOT_MINUTES
+                 +"-minute slots");
+    }
+  }
+
+
+
+  private static void lineEndings(File dir) throws Exception {
+    String text = HEADER.replace("\n", "\r\n") +"None\r\n"
+                  +hourlyRows(48, "\r\n") +"\r\n\r\n";
+    Employee emp = parser.parse(write(dir, "Windows_File.dat", text));
+    Check.equal("Cook", emp.getPosition(), "position ending in CRLF");
+    Check.equal("None", emp.getComment(), "comment ending in CRLF");
+    Check.that(hasHourlyAvail(emp), "availability with CRLF and blank lines"
+                                    +" at the end");
+  }
+
+
+
+  /**
+   * Reads a file bigger than the parser's starting buffer
+   */
+  private static void longFile(File dir) throws Exception {
+    StringBuilder comment = new StringBuilder();
+    while(comment.length() < 10000)
+      comment.append("long comment ");
+    Employee emp = parser.parse(write(dir, "Long_Comment.dat",
+                                      HEADER +comment +"\n"
+                                      +hourlyRows(48, "\n")));
+    Check.equal(comment.toString(), emp.getComment(), "10,000-byte comment");
+    Check.that(hasHourlyAvail(emp), "availability after a long comment");
+  }
+
+
+
+  private static void rejectsBadFiles(File dir) throws Exception {
+    String rows = hourlyRows(48, "\n");
+    String shortRow = rows.substring(0, 10*8) +"012012\n"
+                      +rows.substring(11*8);
+    String badCode = "3" +rows.substring(1);
+
+    checkRefused(dir, "Jane.dat", HEADER +"None\n" +rows,
+                 "line 0: name is not First_Last.dat");
+    checkRefused(dir, "Jane_Doe.txt", HEADER +"None\n" +rows,
+                 "line 0: name is not First_Last.dat");
+    checkRefused(dir, "No_Min.dat", "Cook\n555-0100\nten\n30\n",
+                 "line 3: expected a number");
+    checkRefused(dir, "No_Max.dat", "Cook\n555-0100\n10\n\nNever\n",
+                 "line 4: expected a number");
+    checkRefused(dir, "Big_Max.dat", "Cook\n555-0100\n10\n40000\nNever\n",
+                 "line 4: number out of range");
+    checkRefused(dir, "Cut_Short.dat", "Cook\n555-0100\n",
+                 "line 3: unexpected end of file");
+    checkRefused(dir, "No_Rows.dat", HEADER +"None\n",
+                 "line 7: 0 availability rows is not a supported slot"
+                 +" length");
+    checkRefused(dir, "Seven_Rows.dat", HEADER +"None\n" +hourlyRows(7, "\n"),
+                 "line 7: 7 availability rows is not a supported slot"
+                 +" length");
+    checkRefused(dir, "Five_Minutes.dat",
+                 HEADER +"None\n" +hourlyRows(288, "\n"),
+                 "line 7: 288 availability rows is not a supported slot"
+                 +" length");
+    checkRefused(dir, "Short_Row.dat", HEADER +"None\n" +shortRow,
+                 "line 17: expected 7 availability codes");
+    checkRefused(dir, "Bad_Code.dat", HEADER +"None\n" +badCode,
+                 "line 7: bad availability code '3'");
+
+    Employee emp = parser.parse(write(dir, "After_Errors.dat",
+                                      HEADER +"None\n" +rows));
+    Check.that(hasHourlyAvail(emp), "a good file after refused ones");
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Checks that the file is refused with the message, which is prefixed by
+   * the file name
+   */
+  private static void checkRefused(File dir, String name, String text,
+                                   String msg) throws IOException {
+    File f = write(dir, name, text);
+    try {
+      parser.parse(f);
+      Check.that(false, name +" is refused");
+    }
+    catch(EmployeeFileParser.MalformedFileException e) {
+      Check.equal(name +" " +msg, e.getMessage(), name +" message");
+    }
+  }
+
+
+
+  /**
+   * Returns the availability rows of a day split into the number of rows,
+   * where weekday d is coded (h+d) % 3 during hour h
+   */
+  private static String hourlyRows(int rows, String newline) {
+    StringBuilder text = new StringBuilder();
+    for(int r = 0; r < rows; r++) {
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+        text.append((r*24/rows + d) % 3);
+      text.append(newline);
+    }
+    return text.toString();
+  }
+
+
+
+  private static Boolean hasHourlyAvail(Employee emp) {
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++)
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+        if(emp.avail(r, d) != (r/TimeSlots.SLOTS_PER_HOUR + d) % 3)
+          return false;
+    return true;
+  }
+
+
+
+  private static Boolean sameAvail(Employee a, Employee b) {
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++)
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++)
+        if(a.avail(r, d) != b.avail(r, d))
+          return false;
+    return true;
+  }
+
+
+
+  private static File write(File dir, String name, String text)
+    throws IOException {
+
+    File f = new File(dir, name);
+    FileOutputStream out = new FileOutputStream(f);
+    try {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    finally {
+      out.close();
+    }
+    return f;
+  }
+}
@@ -0,0 +1,522 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class tests the roster journal. Changes committed to the journal
+ *    must come back when the store is opened again, in the same order and
+ *    with removals applied, and whatever a crash can leave at the end of a
+ *    journal file must be dropped without losing the records before it:
+ *
+ *      - a record cut off part way through (a torn write)
+ *      - a whole record whose checksum doesn't match
+ *
+ *    It also checks that records queued but rolled back are never written,
+ *    that old 48-slot put records still replay, and that a compaction folds
+ *    the journal into the roster file, including an edit made through
+ *    ScheduleMaker that takes the journal past the compaction threshold. A
+ *    compaction that can't start must leave the journal usable.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class RosterJournalTest {
+  private static final byte OP_PUT_V1 = 1;
+
+  public static void main(String[] args) throws Exception {
+    replay();
+    tornTail();
+    badChecksum();
+    rollback();
+    oldPutRecord();
+    compaction();
+    editAcrossCompaction();
+    compactionFails();
+    Check.finish("RosterJournalTest");
+  }
+
+
+
+//==============================================================================
+//  Tests
+//==============================================================================
+  /**
+   * Puts, edits, and removes employees and checks the list after reopening
+   */
+  private static void replay() throws Exception {
+    File dir = newStore(10);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+
+      // Edited in place
+      Employee edited = copy(list.get(3), "Manager", "555-9999");
+      journal.put(edited);
+      list.set(3, edited);
+
+      // Removed, including the first and the last
+      int[] removed = {9, 5, 0};
+      for(int i = 0; i < removed.length; i++) {
+        journal.remove(list.get(removed[i]));
+        list.remove(removed[i]);
+      }
+
+      // Added, one of them under a name that was just removed
+      Employee added = employee(20);
+      journal.put(added);
+      list.add(added);
+      Employee back = employee(5);
+      journal.put(back);
+      list.add(back);
+
+      journal.commit();
+      journal.close();
+
+      checkList(list, reopen(dir), "replay");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+  /**
+   * Cuts the last record short and checks that the rest replays, the file is
+   * truncated to the intact records, and new records can follow them
+   */
+  private static void tornTail() throws Exception {
+    File dir = newStore(4);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      journal.put(employee(10));
+      list.add(employee(10));
+      journal.commit();
+      long intact = journalFile(dir).length();
+
+      journal.put(employee(11));
+      journal.commit();
+      journal.close();
+      truncate(journalFile(dir), journalFile(dir).length() - 5);
+
+      journal = open(dir);
+      ArrayList<Employee> reopened = journal.open();
+      checkList(list, reopened, "torn tail");
+      Check.equal(intact, journalFile(dir).length(), "torn tail cut off");
+
+      journal.put(employee(12));
+      reopened.add(employee(12));
+      journal.commit();
+      journal.close();
+      checkList(reopened, reopen(dir), "records after a torn tail");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+  /**
+   * Flips a byte inside the last record and checks that only it is dropped
+   */
+  private static void badChecksum() throws Exception {
+    File dir = newStore(4);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      journal.put(employee(10));
+      list.add(employee(10));
+      journal.commit();
+      journal.put(employee(11));
+      journal.commit();
+      journal.close();
+
+      File f = journalFile(dir);
+      RandomAccessFile raf = new RandomAccessFile(f, "rw");
+      raf.seek(f.length() - 3);
+      int b = raf.read();
+      raf.seek(f.length() - 3);
+      raf.write(b ^ 0xFF);
+      raf.close();
+
+      checkList(list, reopen(dir), "bad checksum");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+  private static void rollback() throws Exception {
+    File dir = newStore(3);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      journal.put(employee(10));
+      journal.remove(list.get(0));
+      journal.rollback();
+      journal.commit();
+
+      // Requested hours are stored in 16 bits, so more is refused up front
+      Employee big = employee(11);
+      big.edit(10, 40000, big.getComment(), big.getLastSub(),
+               big.availMask(ScheduleMaker.PRF),
+               big.availMask(ScheduleMaker.ALT));
+      Boolean refused = false;
+      try {
+        journal.put(big);
+      }
+      catch(IOException e) {
+        refused = true;
+      }
+      Check.that(refused, "40000 requested hours refused");
+      journal.commit();
+      journal.close();
+
+      checkList(list, reopen(dir), "rollback");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+  /**
+   * Replays a put record in the old layout of one 48-slot long per day
+   */
+  private static void oldPutRecord() throws Exception {
+    File dir = newStore(2);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      journal.close();
+
+      int perDay = TimeSlots.LEGACY_SLOTS_PER_DAY;
+      long[] prf = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      long[] alt = SlotMask.create(TimeSlots.WEEK_DAYS*perDay);
+      long[] dayPrf = new long[TimeSlots.WEEK_DAYS],
+             dayAlt = new long[TimeSlots.WEEK_DAYS];
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        // PRF from 9:00 to 17:00, ALT for the two hours after
+        for(int r = 18; r < 34; r++) {
+          SlotMask.set(prf, d*perDay + r, true);
+          dayPrf[d] |= 1L << r;
+        }
+        for(int r = 34; r < 38; r++) {
+          SlotMask.set(alt, d*perDay + r, true);
+          dayAlt[d] |= 1L << r;
+        }
+      }
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(OP_PUT_V1);
+      out.writeUTF("Old_Record.dat");
+      out.writeUTF("Cook");
+      out.writeUTF("555-0001");
+      out.writeUTF("Never");
+      out.writeUTF("None");
+      out.writeShort(12);
+      out.writeShort(24);
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        out.writeLong(dayPrf[d]);
+        out.writeLong(dayAlt[d]);
+      }
+      out.close();
+      append(journalFile(dir), frame(bytes.toByteArray()));
+
+      ArrayList<Employee> reopened = reopen(dir);
+      Check.equal(list.size() + 1, reopened.size(), "old put record added");
+      Employee emp = reopened.get(reopened.size()-1);
+      long[][] expected = Employee.convertAvail(prf, alt, perDay);
+      Check.equal("Old_Record.dat", emp.fileName(), "old put record name");
+      Check.equal(12, emp.requestedHours()[0], "old put record min hours");
+      Check.that(Arrays.equals(expected[0], emp.availMask(ScheduleMaker.PRF)),
+                 "old put record PRF");
+      Check.that(Arrays.equals(expected[1], emp.availMask(ScheduleMaker.ALT)),
+                 "old put record ALT");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+  /**
+   * Commits enough records to compact and checks that the roster file took
+   * them in and the old journal file is gone
+   */
+  private static void compaction() throws Exception {
+    File dir = newStore(50);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      Employee emp;
+      for(int round = 0; round < 80; round++)
+        for(int i = 0; i < list.size(); i++) {
+          emp = copy(list.get(i), "", "555-" +(1000 + round));
+          journal.put(emp);
+          list.set(i, emp);
+        }
+      journal.commit();
+      journal.maybeCompact(list);
+      journal.close();
+
+      RosterStore store = new RosterStore(new File(dir,
+                                                   RosterStore.FILE_NAME));
+      Check.equal(list.size(), store.load().size(), "compacted roster size");
+      Check.equal(1L, store.getGeneration(), "compacted roster generation");
+      Check.that(!new File(dir, "roster.0.jnl").exists(),
+                 "old journal deleted after compaction");
+      checkList(list, reopen(dir), "compaction");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+
+  /**
+   * Fills the journal to just under the compaction threshold, then edits an
+   * employee's position and phone through ScheduleMaker until an edit starts
+   * a compaction, and checks that the edit survives reopening the store
+   */
+  private static void editAcrossCompaction() throws Exception {
+    File dir = newStore(5);
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      for(int i = 0; i < 250*1024 / 200; i++)
+        journal.put(list.get(i % list.size()));
+      journal.commit();
+      journal.close();
+
+      ScheduleMaker sm = new ScheduleMaker(dir, null);
+      Employee emp = sm.empList.get(2);
+      int edits = 0;
+      while(edits < 10000 && !new File(dir, "roster.1.jnl").exists()) {
+        sm.editEmployee(emp, "Position" +edits, "555-" +edits);
+        edits++;
+      }
+      sm.close();
+      Check.that(new File(dir, "roster.1.jnl").exists(),
+                 "an edit started a compaction");
+
+      ArrayList<Employee> reopened = reopen(dir);
+      Employee back = reopened.get(2);
+      Check.equal(emp.fileName(), back.fileName(), "edited employee");
+      Check.equal("Position" +(edits-1), back.getPosition(),
+                  "position edited as the journal compacts");
+      Check.equal("555-" +(edits-1), back.getPhone(),
+                  "phone edited as the journal compacts");
+      checkList(sm.empList, reopened, "edit across compaction");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+
+
+
+  /**
+   * Blocks the next generation's journal file with a directory so the
+   * compaction can't start, and checks that commits carry on in the current
+   * journal file and every record replays
+   */
+  private static void compactionFails() throws Exception {
+    File dir = newStore(50);
+    File blocker = new File(dir, "roster.1.jnl");
+    try {
+      RosterJournal journal = open(dir);
+      ArrayList<Employee> list = journal.open();
+      Check.that(blocker.mkdir(), "next journal file blocked");
+      Employee emp;
+      for(int round = 0; round < 80; round++)
+        for(int i = 0; i < list.size(); i++) {
+          emp = copy(list.get(i), "", "555-" +(1000 + round));
+          journal.put(emp);
+          list.set(i, emp);
+        }
+      journal.commit();
+      journal.maybeCompact(list);
+
+      emp = employee(60);
+      journal.put(emp);
+      list.add(emp);
+      journal.commit();
+      journal.maybeCompact(list);
+      journal.close();
+
+      Check.that(blocker.delete(), "next journal file unblocked");
+      Check.that(new File(dir, "roster.0.jnl").exists(),
+                 "journal kept when compaction can't start");
+      checkList(list, reopen(dir), "failed compaction");
+    }
+    finally {
+      Check.delete(dir);
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Creates a store directory whose roster file holds n employees
+   */
+  private static File newStore(int n) throws Exception {
+    File dir = Check.tempDir("roster-journal-test");
+    ArrayList<Employee> list = new ArrayList<Employee>();
+    for(int i = 0; i < n; i++)
+      list.add(employee(i));
+    new RosterStore(new File(dir, RosterStore.FILE_NAME)).save(list, 0);
+    return dir;
+  }
+
+
+
+  private static RosterJournal open(File dir) {
+    return new RosterJournal(new RosterStore(new File(dir,
+                                                      RosterStore.FILE_NAME)),
+                             dir);
+  }
+
+
+
+  private static ArrayList<Employee> reopen(File dir) throws IOException {
+    RosterJournal journal = open(dir);
+    ArrayList<Employee> list = journal.open();
+    journal.close();
+    return list;
+  }
+
+
+
+  private static Employee employee(int i) {
+    long[] prf = SlotMask.week();
+    long[] alt = SlotMask.week();
+    int d = i % TimeSlots.WEEK_DAYS;
+    int from = d*TimeSlots.SLOTS_PER_DAY + TimeSlots.slots(8);
+    SlotMask.setRange(prf, TimeSlots.WEEK_SLOTS, from,
+                      from + TimeSlots.slots(4 + i % 5));
+    SlotMask.setRange(alt, TimeSlots.WEEK_SLOTS, from + TimeSlots.slots(10),
+                      from + TimeSlots.slots(12));
+    return new Employee("Test_Person" +i +".dat", "Cashier", "555-" +i,
+                        i % 10, 20 + i % 10, "Never", "None", prf, alt);
+  }
+
+
+
+  /**
+   * Returns a copy of the employee with the position and phone edited
+   */
+  private static Employee copy(Employee emp, String position, String phone) {
+    int[] req = emp.requestedHours();
+    Employee edited = new Employee(emp.fileName(), emp.getPosition(),
+                                   emp.getPhone(), req[0], req[1],
+                                   emp.getLastSub(), emp.getComment(),
+                                   emp.availMask(ScheduleMaker.PRF),
+                                   emp.availMask(ScheduleMaker.ALT));
+    edited.edit(position, phone);
+    return edited;
+  }
+
+
+
+  private static void checkList(ArrayList<Employee> expected,
+                                ArrayList<Employee> actual, String what) {
+    Check.equal(expected.size(), actual.size(), what +" size");
+    Employee a, b;
+    for(int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+      a = expected.get(i);
+      b = actual.get(i);
+      Check.equal(a.fileName(), b.fileName(), what +" #" +i +" name");
+      Check.equal(a.getPosition(), b.getPosition(),
+                  what +" #" +i +" position");
+      Check.equal(a.getPhone(), b.getPhone(), what +" #" +i +" phone");
+      Check.that(Arrays.equals(a.requestedHours(), b.requestedHours()),
+                 what +" #" +i +" requested hours");
+      Check.that(Arrays.equals(a.availMask(ScheduleMaker.PRF),
+                               b.availMask(ScheduleMaker.PRF))
+                 && Arrays.equals(a.availMask(ScheduleMaker.ALT),
+                                  b.availMask(ScheduleMaker.ALT)),
+                 what +" #" +i +" availability");
+    }
+  }
+
+
+
+  /**
+   * Returns the journal file being appended to, the one of the highest
+   * generation
+   */
+  private static File journalFile(File dir) {
+    File last = null;
+    long gen, lastGen = -1;
+    String[] names = dir.list();
+    for(int i = 0; i < names.length; i++)
+      if(names[i].startsWith("roster.") && names[i].endsWith(".jnl")) {
+        gen = Long.parseLong(names[i].substring(7, names[i].length()-4));
+        if(gen > lastGen) {
+          lastGen = gen;
+          last = new File(dir, names[i]);
+        }
+      }
+    return last;
+  }
+
+
+
+  /**
+   * Frames a record payload the way the journal does: length, CRC32, payload
+   */
+  private static byte[] frame(byte[] payload) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(payload.length);
+    out.writeInt((int)crc.getValue());
+    out.write(payload);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+
+
+  private static void append(File f, byte[] data) throws IOException {
+    FileOutputStream out = new FileOutputStream(f, true);
+    try {
+      out.write(data);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+
+
+  private static void truncate(File f, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(f, "rw");
+    try {
+      raf.setLength(length);
+    }
+    finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class tests the roster file. A roster saved and loaded again must
+ *    give back every field and the exact availability, and files written by
+ *    older versions must still load: version 1 and 2 files with 48-slot day
+ *    planes, and version 3 files written with another slot length. The old
+ *    files are written byte by byte here in the layout RosterStore
+ *    describes, since the program can only write the current version.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+public class RosterStoreTest {
+  private static final int MAGIC = 0x52535452;
+
+  private static final String[] POSITIONS = {"Cashier", "Cook", "G\u00e9rant"};
+
+  public static void main(String[] args) throws Exception {
+    File dir = Check.tempDir("roster-store-test");
+    try {
+      roundTrip(dir);
+      emptyRoundTrip(dir);
+      hoursOutOfRange(dir);
+      version1(dir);
+      version2(dir);
+      otherSlotLength(dir);
+      rejectsBadFiles(dir);
+    }
+    finally {
+      Check.delete(dir);
+    }
+    Check.finish("RosterStoreTest");
+  }
+
+
+
+//==============================================================================
+//  Tests
+//==============================================================================
+  /**
+   * Saves a roster in the current version and loads it back
+   */
+  private static void roundTrip(File dir) throws Exception {
+    Random rand = new Random(4);
+    ArrayList<Employee> saved = new ArrayList<Employee>();
+    for(int i = 0; i < 40; i++)
+      saved.add(randomEmployee(i, rand));
+
+    File f = new File(dir, "current.dat");
+    new RosterStore(f).save(saved, 42);
+    Check.equal(3, readInt(f, 4), "version written");
+
+    RosterStore reader = new RosterStore(f);
+    ArrayList<Employee> loaded = reader.load();
+    Check.equal(42L, reader.getGeneration(), "generation after round trip");
+    Check.equal(saved.size(), loaded.size(), "employees after round trip");
+    for(int i = 0; i < Math.min(saved.size(), loaded.size()); i++)
+      checkSame(saved.get(i), loaded.get(i), "round trip #" +i);
+  }
+
+
+
+  private static void emptyRoundTrip(File dir) throws Exception {
+    RosterStore store = new RosterStore(new File(dir, "empty.dat"));
+    store.save(new ArrayList<Employee>(), 7);
+    RosterStore reader = new RosterStore(new File(dir, "empty.dat"));
+    Check.equal(0, reader.load().size(), "employees in an empty roster");
+    Check.equal(7L, reader.getGeneration(), "generation of an empty roster");
+  }
+
+
+
+  /**
+   * Requested hours are stored in 16 bits, so a save of hours past that must
+   * fail and leave the previous roster file as it was
+   */
+  private static void hoursOutOfRange(File dir) throws Exception {
+    Random rand = new Random(5);
+    ArrayList<Employee> list = new ArrayList<Employee>();
+    list.add(randomEmployee(0, rand));
+    File f = new File(dir, "hours.dat");
+    new RosterStore(f).save(list, 1);
+
+    Employee emp = randomEmployee(1, rand);
+    emp.edit(10, 40000, emp.getComment(), emp.getLastSub(),
+             emp.availMask(ScheduleMaker.PRF),
+             emp.availMask(ScheduleMaker.ALT));
+    list.add(emp);
+    Boolean refused = false;
+    try {
+      new RosterStore(f).save(list, 2);
+    }
+    catch(IOException e) {
+      refused = true;
+    }
+    Check.that(refused, "40000 requested hours refused");
+
+    RosterStore reader = new RosterStore(f);
+    Check.equal(1, reader.load().size(), "roster kept after a refused save");
+    Check.equal(1L, reader.getGeneration(),
+                "generation kept after a refused save");
+  }
+
+
+
+  /**
+   * Version 1: no generation, two 48-bit planes per day
+   */
+  private static void version1(File dir) throws Exception {
+    checkLegacy(dir, 1);
+  }
+
+
+
+  /**
+   * Version 2: a generation, two 48-bit planes per day
+   */
+  private static void version2(File dir) throws Exception {
+    checkLegacy(dir, 2);
+  }
+
+
+
+  /**
+   * Version 3 written with twice as many slots per day as the program uses
+   * must be converted to the current slot length on load
+   */
+  private static void otherSlotLength(File dir) throws Exception {
+    int perDay = 2*TimeSlots.SLOTS_PER_DAY;
+    int weekSlots = TimeSlots.WEEK_DAYS*perDay;
+    Random rand = new Random(9);
+    long[] prf = SlotMask.create(weekSlots);
+    long[] alt = SlotMask.create(weekSlots);
+    randomAvail(prf, alt, weekSlots, rand);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(3);
+    out.writeInt(1);
+    out.writeInt(5);
+    out.writeLong(11);
+    out.writeInt(perDay);
+    writeFields(out, 8, 20);
+    writePlane(out, prf, weekSlots);
+    writePlane(out, alt, weekSlots);
+    writeStrings(out, "Ann_Lee.dat", "Cook", "555-1234", "Never", "None");
+    out.close();
+
+    File f = new File(dir, "slots.dat");
+    write(f, bytes.toByteArray());
+    RosterStore store = new RosterStore(f);
+    ArrayList<Employee> loaded = store.load();
+    Check.equal(11L, store.getGeneration(), "generation of other slot length");
+    Check.equal(1, loaded.size(), "employees of other slot length");
+
+    long[][] expected = Employee.convertAvail(prf, alt, perDay);
+    Check.that(Arrays.equals(expected[0],
+                             loaded.get(0).availMask(ScheduleMaker.PRF)),
+               "PRF converted from " +perDay +" slots per day");
+    Check.that(Arrays.equals(expected[1],
+                             loaded.get(0).availMask(ScheduleMaker.ALT)),
+               "ALT converted from " +perDay +" slots per day");
+  }
+
+
+
+  private static void rejectsBadFiles(File dir) throws Exception {
+    File f = new File(dir, "bad.dat");
+
+    write(f, "not a roster file at all".getBytes(StandardCharsets.UTF_8));
+    Check.that(loadFails(f), "a file without the magic number is refused");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(4);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeLong(0);
+    out.writeInt(TimeSlots.SLOTS_PER_DAY);
+    out.close();
+    write(f, bytes.toByteArray());
+    Check.that(loadFails(f), "a newer version is refused");
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Writes a version 1 or 2 file of a few employees and checks that it loads
+   * with their 48-slot availability converted to the current slot length
+   */
+  private static void checkLegacy(File dir, int version) throws Exception {
+    int perDay = TimeSlots.LEGACY_SLOTS_PER_DAY;
+    int weekSlots = TimeSlots.WEEK_DAYS*perDay;
+    int numEmps = 3;
+    Random rand = new Random(version);
+    long[][] prf = new long[numEmps][],
+             alt = new long[numEmps][];
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(version);
+    out.writeInt(numEmps);
+    out.writeInt(1 + 4*numEmps);
+    if(version >= 2)
+      out.writeLong(5);
+
+    // String 0 is the shared comment, then each employee's name, position,
+    // phone and last submission
+    for(int e = 0; e < numEmps; e++) {
+      prf[e] = SlotMask.create(weekSlots);
+      alt[e] = SlotMask.create(weekSlots);
+      randomAvail(prf[e], alt[e], weekSlots, rand);
+
+      int first = 1 + 4*e;
+      out.writeInt(first);
+      out.writeInt(first + 1);
+      out.writeInt(first + 2);
+      out.writeInt(first + 3);
+      out.writeInt(0);
+      out.writeShort(10 + e);
+      out.writeShort(20 + e);
+      for(int d = 0; d < TimeSlots.WEEK_DAYS; d++) {
+        write48(out, dayBits(prf[e], d));
+        write48(out, dayBits(alt[e], d));
+      }
+    }
+
+    String[] strings = new String[1 + 4*numEmps];
+    strings[0] = "None";
+    for(int e = 0; e < numEmps; e++) {
+      strings[1 + 4*e] = "Old_Timer" +e +".dat";
+      strings[2 + 4*e] = POSITIONS[e % POSITIONS.length];
+      strings[3 + 4*e] = "555-000" +e;
+      strings[4 + 4*e] = "Never";
+    }
+    writeStrings(out, strings);
+    out.close();
+
+    File f = new File(dir, "v" +version +".dat");
+    write(f, bytes.toByteArray());
+    RosterStore store = new RosterStore(f);
+    ArrayList<Employee> loaded = store.load();
+    String what = "version " +version;
+
+    Check.equal(version >= 2 ? 5L : 0L, store.getGeneration(),
+                what +" generation");
+    Check.equal(numEmps, loaded.size(), what +" employees");
+    Employee emp;
+    long[][] expected;
+    for(int e = 0; e < Math.min(numEmps, loaded.size()); e++) {
+      emp = loaded.get(e);
+      Check.equal("Old_Timer" +e +".dat", emp.fileName(), what +" name");
+      Check.equal(POSITIONS[e % POSITIONS.length], emp.getPosition(),
+                  what +" position");
+      Check.equal("555-000" +e, emp.getPhone(), what +" phone");
+      Check.equal("None", emp.getComment(), what +" comment");
+      Check.equal(10 + e, emp.requestedHours()[0], what +" min hours");
+      Check.equal(20 + e, emp.requestedHours()[1], what +" max hours");
+
+      expected = Employee.convertAvail(prf[e], alt[e], perDay);
+      Check.that(Arrays.equals(expected[0], emp.availMask(ScheduleMaker.PRF)),
+                 what +" PRF of employee " +e);
+      Check.that(Arrays.equals(expected[1], emp.availMask(ScheduleMaker.ALT)),
+                 what +" ALT of employee " +e);
+    }
+  }
+
+
+
+  private static Employee randomEmployee(int i, Random rand) {
+    long[] prf = SlotMask.week();
+    long[] alt = SlotMask.week();
+    randomAvail(prf, alt, TimeSlots.WEEK_SLOTS, rand);
+    return new Employee("Emp_Number" +i +".dat",
+                        POSITIONS[rand.nextInt(POSITIONS.length)],
+                        (i % 5 == 0) ? "" : "555-" +(1000 + i),
+                        rand.nextInt(20), 20 + rand.nextInt(20),
+                        (i % 2 == 0) ? "Never" : "01/02/2026",
+                        (i % 3 == 0) ? "None" : "Comment, with\nlines " +i,
+                        prf, alt);
+  }
+
+
+
+  /**
+   * Sets each slot to PRF, ALT or neither at random
+   */
+  private static void randomAvail(long[] prf, long[] alt, int weekSlots,
+                                  Random rand) {
+    int type;
+    for(int s = 0; s < weekSlots; s++) {
+      type = rand.nextInt(3);
+      SlotMask.set(prf, s, type == 1);
+      SlotMask.set(alt, s, type == 2);
+    }
+  }
+
+
+
+  private static void checkSame(Employee a, Employee b, String what) {
+    Check.equal(a.fileName(), b.fileName(), what +" name");
+    Check.equal(a.getPosition(), b.getPosition(), what +" position");
+    Check.equal(a.getPhone(), b.getPhone(), what +" phone");
+    Check.equal(a.getLastSub(), b.getLastSub(), what +" last submission");
+    Check.equal(a.getComment(), b.getComment(), what +" comment");
+    Check.that(Arrays.equals(a.requestedHours(), b.requestedHours()),
+               what +" requested hours");
+    Check.that(Arrays.equals(a.availMask(ScheduleMaker.PRF),
+                             b.availMask(ScheduleMaker.PRF)), what +" PRF");
+    Check.that(Arrays.equals(a.availMask(ScheduleMaker.ALT),
+                             b.availMask(ScheduleMaker.ALT)), what +" ALT");
+  }
+
+
+
+  /**
+   * Returns the 48 bits of weekday d of a 48-slot weekly mask
+   */
+  private static long dayBits(long[] mask, int d) {
+    int perDay = TimeSlots.LEGACY_SLOTS_PER_DAY;
+    long bits = 0;
+    for(int r = 0; r < perDay; r++)
+      if(SlotMask.get(mask, d*perDay + r))
+        bits |= 1L << r;
+    return bits;
+  }
+
+
+
+  private static void writeFields(DataOutputStream out, int min, int max)
+    throws IOException {
+    for(int i = 0; i < 5; i++)
+      out.writeInt(i);
+    out.writeShort(min);
+    out.writeShort(max);
+  }
+
+
+
+  /**
+   * Writes 48 bits as a short of the high 16 followed by an int of the rest
+   */
+  private static void write48(DataOutputStream out, long bits)
+    throws IOException {
+    out.writeShort((int)(bits >>> 32));
+    out.writeInt((int)bits);
+  }
+
+
+
+  /**
+   * Writes a weekly plane 8 slots to a byte, the first slot in the lowest bit
+   */
+  private static void writePlane(DataOutputStream out, long[] mask,
+                                 int weekSlots) throws IOException {
+    for(int i = 0; i < (weekSlots + 7) / 8; i++)
+      out.writeByte((int)(mask[i >>> 3] >>> ((i & 7) << 3)));
+  }
+
+
+
+  private static void writeStrings(DataOutputStream out, String... strings)
+    throws IOException {
+    byte[] bytes;
+    for(int i = 0; i < strings.length; i++) {
+      bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+
+
+  private static void write(File f, byte[] data) throws IOException {
+    FileOutputStream out = new FileOutputStream(f);
+    try {
+      out.write(data);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+
+
+  private static int readInt(File f, int pos) throws IOException {
+    byte[] data = Files.readAllBytes(f.toPath());
+    return (data[pos] & 0xFF) << 24 | (data[pos+1] & 0xFF) << 16
+           | (data[pos+2] & 0xFF) << 8 | (data[pos+3] & 0xFF);
+  }
+
+
+
+  private static Boolean loadFails(File f) {
+    try {
+      new RosterStore(f).load();
+      return false;
+    }
+    catch(IOException e) {
+      return true;
+    }
+  }
+}
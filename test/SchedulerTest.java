@@ -0,0 +1,97 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class tests the scheduler's search. The search never rescores the
+ *    whole assignment; it adds up the change in score of every move it
+ *    makes. If any of those changes is off, the score it believes its best
+ *    assignment has drifts from that assignment's real score, so after each
+ *    search the score it reported is compared with score() worked out from
+ *    scratch. The search runs on a generated roster with no constraints,
+ *    with constraints, and with constraints and staffing demand, since each
+ *    adds terms to the change of a move.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+
+public class SchedulerTest {
+  // Enough moves to trade with the portfolio once along the way
+  private static final long MOVES = 300000;
+
+  private static final String CONSTRAINTS =
+      "headcount, *, Any, 11:00AM, 2:00PM, 2, 10\n"
+    + "headcount, Cook, Sat, 6:00PM, 1:00AM, 1, 3\n"
+    + "maxdays, *, 4\n"
+    + "minrest, Cashier, 12\n";
+
+  public static void main(String[] args) throws Exception {
+    File dir = Check.tempDir("scheduler-test");
+    try {
+      RosterGenerator.generate(dir, 60, 3);
+      ScheduleMaker sm = new ScheduleMaker(dir, null);
+      sm.close();
+      ArrayList<Employee> emps = sm.empList;
+      long[] open = sm.getOpenMasks();
+      ConstraintSet constraints = ConstraintSet.parse(CONSTRAINTS);
+
+      checkSearch("no constraints",
+                  new RosterSnapshot(emps, open, null, null, null));
+      checkSearch("constraints",
+                  new RosterSnapshot(emps, open, constraints, null, null));
+      checkSearch("constraints and demand",
+                  new RosterSnapshot(emps, open, constraints, demand(),
+                                     null));
+    }
+    finally {
+      Check.delete(dir);
+    }
+    Check.finish("SchedulerTest");
+  }
+
+
+
+//==============================================================================
+//  Tests
+//==============================================================================
+  /**
+   * Runs the search with a few seeds and checks that the score it added up
+   * for its best assignment is that assignment's score. A search that never
+   * gets past the greedy assignment would pass that trivially, so it is also
+   * checked to have found something better
+   */
+  private static void checkSearch(String what, RosterSnapshot snap) {
+    Scheduler scheduler = new Scheduler(snap);
+    scheduler.setSearch(0, 0);
+    scheduler.run();
+    long greedy = scheduler.score();
+
+    PortfolioSolver portfolio;
+    for(long seed = 1; seed <= 3; seed++) {
+      scheduler = new Scheduler(snap);
+      portfolio = new PortfolioSolver(snap, 1, 0);
+      scheduler.setSearch(MOVES, seed);
+      scheduler.joinPortfolio(portfolio, System.nanoTime() + 3600*1000000000L);
+      scheduler.run();
+      Check.equal(portfolio.bestScore(), scheduler.score(),
+                  what +", seed " +seed +": score added up by the search");
+      Check.that(scheduler.score() > greedy,
+                 what +", seed " +seed +": the search improves on "
+                 +greedy +", got " +scheduler.score());
+    }
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  /**
+   * Returns a demand for two cashiers over lunch on weekdays
+   */
+  private static StaffingDemand demand() {
+    StaffingDemand demand = new StaffingDemand();
+    for(int d = 0; d < 5; d++)
+      for(int r = TimeSlots.slots(11); r < TimeSlots.slots(14); r++)
+        demand.set("Cashier", d, r, 2);
+    return demand;
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Author: Kyoseong Ku <aust1nku@ucla.edu>
+ *
+ * Description:
+ *    This class tests the conversions between slots, 24-hour times, and
+ *    labels in TimeSlots, which are lookups in tables built for the slot
+ *    length and period the JVM was started with. Every slot of the day is
+ *    checked both ways, so running the test with -Dslot.minutes=10 or
+ *    -Dperiod.days=14 checks that layout too.
+ */
+
+public class TimeSlotsTest {
+  private static final int[] SLOT_MINUTES = {10, 12, 15, 20, 30, 60};
+
+  private static final int[] PERIOD_DAYS = {7, 14, 21, 28};
+
+  public static void main(String[] args) throws Exception {
+    layout();
+    slotsAndTimes();
+    labels();
+    offGridLabels();
+    shiftLabels();
+    days();
+    settings();
+    Check.finish("TimeSlotsTest");
+  }
+
+
+
+//==============================================================================
+//  Tests
+//==============================================================================
+  private static void layout() {
+    Check.equal(24*60, TimeSlots.SLOTS_PER_DAY*TimeSlots.SLOT_MINUTES,
+                "slots cover the day");
+    Check.equal(TimeSlots.NUM_DAYS*TimeSlots.SLOTS_PER_DAY,
+                TimeSlots.PERIOD_SLOTS, "slots in the period");
+    Check.equal(TimeSlots.SLOTS_PER_HOUR, TimeSlots.slots(1), "slots(1)");
+  }
+
+
+
+  /**
+   * Checks that every slot's time falls back in the slot, and that every
+   * 24-hour time falls in the slot that starts at or before it
+   */
+  private static void slotsAndTimes() {
+    Boolean ok = true;
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++)
+      ok &= TimeSlots.toSlot(TimeSlots.toTime(r)) == r;
+    Check.that(ok, "toSlot(toTime(r)) == r for every slot");
+    Check.equal(0, TimeSlots.toTime(TimeSlots.SLOTS_PER_DAY),
+                "the slot after the last one is midnight");
+
+    int r, start, next;
+    ok = true;
+    for(int t = 0; t < 2400; t++) {
+      if(t % 100 >= 60)
+        continue;
+      r = TimeSlots.toSlot(t);
+      start = minutes(TimeSlots.toTime(r));
+      next = start + TimeSlots.SLOT_MINUTES;
+      ok &= start <= minutes(t) && minutes(t) < next;
+    }
+    Check.that(ok, "every 24-hour time falls in its slot");
+
+    Check.equal(900, TimeSlots.toTime(TimeSlots.slots(9)), "9 AM");
+    Check.equal(1300, TimeSlots.toTime(TimeSlots.slots(13)), "1 PM");
+    Check.equal(TimeSlots.slots(23), TimeSlots.toSlot(2300), "11 PM");
+  }
+
+
+
+  private static void labels() throws Exception {
+    Boolean ok = true;
+    int time;
+    for(int r = 0; r < TimeSlots.SLOTS_PER_DAY; r++) {
+      time = TimeSlots.toTime(r);
+      ok &= TimeSlots.parse(TimeSlots.label(r)) == time
+            && TimeSlots.parse(TimeSlots.menuLabel(r)) == time
+            && TimeSlots.timeLabel(time).equals(TimeSlots.label(r))
+            && TimeSlots.menuLabel(r).equals(TimeSlots.label(r)
+                                             .replace("AM", " AM")
+                                             .replace("PM", " PM"));
+    }
+    Check.that(ok, "labels of every slot parse back to its time");
+
+    Check.equal("12:00AM", TimeSlots.label(0), "midnight");
+    Check.equal("12:00PM", TimeSlots.label(TimeSlots.slots(12)), "noon");
+    Check.equal("9:00AM", TimeSlots.label(TimeSlots.slots(9)), "9 AM");
+    Check.equal("11:00PM", TimeSlots.label(TimeSlots.slots(23)), "11 PM");
+    Check.equal("12:00AM", TimeSlots.label(TimeSlots.SLOTS_PER_DAY),
+                "label past the end of the day");
+    Check.equal(900, TimeSlots.parse("09:00AM"), "leading zero");
+    Check.equal(900, TimeSlots.parse("09:00 AM"), "leading zero, menu form");
+
+    Check.equal(ScheduleMaker.HOURS_CLOSED, TimeSlots.parse(TimeSlots.CLOSED),
+                "parse Closed");
+    Check.equal(ScheduleMaker.HOURS_24, TimeSlots.parse(TimeSlots.OPEN_24),
+                "parse 24 HR");
+    Check.equal(TimeSlots.CLOSED,
+                TimeSlots.timeLabel(ScheduleMaker.HOURS_CLOSED),
+                "label of closed");
+    Check.equal(TimeSlots.OPEN_24, TimeSlots.timeLabel(ScheduleMaker.HOURS_24),
+                "label of open 24 hours");
+
+    String[] bad = {"", "9:00", "13:00PM", "9:00XM", "9:07AM", "closed"};
+    for(int i = 0; i < bad.length; i++)
+      Check.that(!parses(bad[i]), "\"" +bad[i] +"\" is refused");
+  }
+
+
+
+  /**
+   * Checks that every minute of the day is labeled as itself, not as the
+   * start of the slot it falls in
+   */
+  private static void offGridLabels() {
+    Boolean ok = true;
+    int h, m;
+    String expected;
+    for(int t = 0; t < 2400; t++) {
+      h = t / 100;
+      m = t % 100;
+      if(m >= 60)
+        continue;
+      expected = ((h%12 == 0) ? 12 : h%12) +":" +(m < 10 ? "0" : "") +m
+                 +(h < 12 ? "AM" : "PM");
+      ok &= TimeSlots.timeLabel(t).equals(expected);
+    }
+    Check.that(ok, "every minute of the day labeled as itself");
+
+    Check.equal("9:30AM", TimeSlots.timeLabel(930), "9:30 AM");
+    Check.equal("9:05AM", TimeSlots.timeLabel(905), "9:05 AM");
+    Check.equal("11:59PM", TimeSlots.timeLabel(2359), "11:59 PM");
+    Check.equal("12:01AM", TimeSlots.timeLabel(1), "12:01 AM");
+  }
+
+
+
+  /**
+   * Checks every shift label against the labels of its ends, and that a label
+   * is made once and then reused
+   */
+  private static void shiftLabels() {
+    Boolean ok = true;
+    String label;
+    for(int start = 0; start < TimeSlots.SLOTS_PER_DAY; start++)
+      for(int len = 1; len <= TimeSlots.SLOTS_PER_DAY; len++) {
+        label = TimeSlots.shiftLabel(start, len);
+        ok &= label.equals(TimeSlots.label(start) +"-"
+                           +TimeSlots.label(start+len))
+              && label == TimeSlots.shiftLabel(start, len);
+      }
+    Check.that(ok, "every shift label");
+
+    Check.equal(TimeSlots.OFF, TimeSlots.shiftLabel(TimeSlots.slots(9), 0),
+                "length 0 is OFF");
+    Check.equal("9:00AM-5:00PM",
+                TimeSlots.shiftLabel(TimeSlots.slots(9), TimeSlots.slots(8)),
+                "day shift");
+    Check.equal("10:00PM-2:00AM",
+                TimeSlots.shiftLabel(TimeSlots.slots(22), TimeSlots.slots(4)),
+                "shift past midnight");
+  }
+
+
+
+  private static void days() {
+    for(int d = 0; d < TimeSlots.NUM_DAYS; d++) {
+      Check.equal(d % 7, TimeSlots.weekday(d), "weekday of day " +d);
+      Check.that(TimeSlots.dayName(d).startsWith(
+                   TimeSlots.dayName(TimeSlots.weekday(d)).substring(0, 3)),
+                 "day " +d +" is named after its weekday");
+    }
+    Check.equal(TimeSlots.NUM_WEEKS > 1 ? "Mon 1" : "Mon",
+                TimeSlots.dayName(0), "name of the first day");
+    if(TimeSlots.NUM_WEEKS > 1)
+      Check.equal("Sun 2", TimeSlots.dayName(13), "name of day 13");
+  }
+
+
+
+  /**
+   * Checks which settings are supported, and that a setting the JVM was
+   * started with is warned about exactly when it is not supported
+   */
+  private static void settings() {
+    for(int m = 1; m <= 120; m++)
+      Check.equal(contains(SLOT_MINUTES, m),
+                  TimeSlots.isSupported(TimeSlots.SLOT_MINUTES_PROPERTY, m),
+                  m +"-minute slots supported");
+    for(int d = 0; d <= 60; d++)
+      Check.equal(contains(PERIOD_DAYS, d),
+                  TimeSlots.isSupported(TimeSlots.PERIOD_DAYS_PROPERTY, d),
+                  d +"-day period supported");
+
+    int warnings = 0;
+    if(!usable(TimeSlots.SLOT_MINUTES_PROPERTY))
+      warnings++;
+    if(!usable(TimeSlots.PERIOD_DAYS_PROPERTY))
+      warnings++;
+    Check.equal(warnings, TimeSlots.settingWarnings().size(),
+                "warnings about the settings given: "
+                +TimeSlots.settingWarnings());
+    if(!usable(TimeSlots.SLOT_MINUTES_PROPERTY))
+      Check.equal(30, TimeSlots.SLOT_MINUTES, "default slot length used");
+    if(!usable(TimeSlots.PERIOD_DAYS_PROPERTY))
+      Check.equal(7, TimeSlots.NUM_DAYS, "default period used");
+  }
+
+//==============================================================================
+//  Helper methods
+//==============================================================================
+  private static int minutes(int time) {
+    return (time/100)*60 + time%100;
+  }
+
+
+
+  private static Boolean parses(String label) {
+    try {
+      TimeSlots.parse(label);
+      return true;
+    }
+    catch(Exception e) {
+      return false;
+    }
+  }
+
+
+
+  private static Boolean contains(int[] values, int value) {
+    for(int i = 0; i < values.length; i++)
+      if(values[i] == value)
+        return true;
+    return false;
+  }
+
+
+
+  /**
+   * Checks if the setting is missing or supported
+   */
+  private static Boolean usable(String name) {
+    String text = System.getProperty(name);
+    if(text == null)
+      return true;
+    try {
+      return TimeSlots.isSupported(name, Integer.parseInt(text.trim()));
+    }
+    catch(NumberFormatException e) {
+      return false;
+    }
+  }
+}